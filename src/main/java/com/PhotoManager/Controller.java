@@ -8,6 +8,12 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller class which controls all interactions between the GUInterface and classes in the
@@ -43,6 +49,19 @@ public class Controller {
 
     private ObjectClassifier classifier;
     private TagManager tagManager;
+    /**
+     * Where new Images keep their tags.
+     */
+    private TagStore tagStore;
+    private DirectoryScanner scanner;
+    private RenameExecutor renamer;
+    /**
+     * Executor that runs on the thread which uses this Controller if renames and config writes
+     * happen in the background | null if they happen when the current Directory changes.
+     */
+    private Executor writeBehind;
+    private DirectoryWatcher watcher;
+    private Logger logger = Logger.getLogger(Controller.class.getName());
 
     /**
      * Creates a Controller Object with a root Directory (starting point).
@@ -51,16 +70,110 @@ public class Controller {
      * @param rootFilePath File path to root Directory of the program
      */
     public Controller(File rootFilePath) {
+        this(rootFilePath, new DirectoryScanner());
+    }
+
+    /**
+     * Creates a Controller Object with a root Directory (starting point) that is scanned by
+     * scanner.
+     *
+     * @param rootFilePath File path to root Directory of the program
+     * @param scanner      DirectoryScanner used to build the Directory tree
+     */
+    public Controller(File rootFilePath, DirectoryScanner scanner) {
         cachedData = new ConfigManager();
         //imageHistories = new HashMap<>();
 
         classifier = new ObjectClassifier();
 
         tagManager = new TagManager(cachedData.getCachedTags());
-        rootDirectory = new Directory(this, null, rootFilePath, cachedData);
+        try {
+            tagStore = TagStore.forName(cachedData.getTagStoreName(rootFilePath));
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, e.getMessage());
+            logger.addHandler(new ConsoleHandler());
+            tagStore = new FilenameTagStore();
+        }
+        this.scanner = scanner;
+        renamer = new RenameExecutor(scanner.getParallelism(), cachedData.getJournal());
+        // A failed rename puts back the tags in the Image's name, so its tags are indexed again
+        renamer.addRevertListener(tagManager::retagImage);
+        rootDirectory = scanner.scan(this, rootFilePath, cachedData);
         setCurrentDirectory(getRootDirectory());
     }
 
+    /**
+     * Starts applying changes made to the OS's filesystem under the root Directory to the
+     * loaded Directories, so they never have to be relisted.
+     *
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     */
+    public void startWatching(Executor modelExecutor) {
+        stopWatching();
+        try {
+            watcher = new DirectoryWatcher(modelExecutor);
+            watcher.watchTree(rootDirectory);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot watch for changes: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Starts removing the saved histories of files that no longer exist, in the background.
+     *
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     * @return Future of the number of histories removed
+     */
+    public CompletableFuture<Integer> verifyHistories(Executor modelExecutor) {
+        return cachedData.verifyHistoriesAsync(modelExecutor);
+    }
+
+    /**
+     * Starts listing every folder under the root Directory that hasn't been listed yet on the
+     * DirectoryScanner's threads, and returns the running task. Listed folders are filled in
+     * through modelExecutor as they are ready, so the tree can be used while it is scanned.
+     * <br>Used with a lazy DirectoryScanner, this shows the root as soon as it is listed.
+     *
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     * @return Running ScanTask
+     */
+    public ScanTask scanInBackground(Executor modelExecutor) {
+        return scanner.scanInBackground(rootDirectory, cachedData, modelExecutor).start();
+    }
+
+    /**
+     * Adds a listener that is told on the model's thread how far large background batches of
+     * renames and moves have got, including copies to other filesystems.
+     *
+     * @param listener Listener of progress reports
+     */
+    public void addMoveProgressListener(Consumer<? super MoveProgress> listener) {
+        renamer.addProgressListener(listener);
+    }
+
+    /**
+     * Stops applying changes made to the OS's filesystem.
+     */
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Watches a newly loaded directory and its sub-directories for changes if watching has been
+     * started.
+     *
+     * @param directory Newly loaded Directory
+     */
+    public void watchDirectory(Directory directory) {
+        if (watcher != null) {
+            watcher.watchTree(directory);
+        }
+    }
+
     /**
      * Return the Directory at which the Controller is currently operating in.
      *
@@ -73,17 +186,79 @@ public class Controller {
     /**
      * Sets the Directory Controller is at to currentDirectory and write the updates of the previous Directory
      * to config.txt.
+     * <br>In write-behind mode the renames start in the background and the config is written
+     * by a scheduled write, so this never waits for the disk.
      *
      * @param currentDirectory Directory object representing the current directory
      */
     public void setCurrentDirectory(Directory currentDirectory) {
         assert currentDirectory != null;
         this.currentDirectory = currentDirectory;
-        currentDirectory.updateImagesOSPathAll();
+        if (writeBehind != null) {
+            updateAvailableTags();
+            renamer.flushAsync(rootDirectory, writeBehind);
+            cachedData.scheduleWrite();
+            return;
+        }
+        currentDirectory.updateImagesOSPathAll(renamer);
         updateAvailableTags();
         updateConfig();
     }
 
+    /**
+     * Makes renames and config writes happen in the background: tag edits only change the
+     * Images in memory, and commit applies them to the OS's filesystem in batches. Changes
+     * are saved to the config file ConfigManager.WRITE_DELAY_MILLIS after they are made.
+     *
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     */
+    public void startWriteBehind(Executor modelExecutor) {
+        startWriteBehind(modelExecutor, ConfigManager.WRITE_DELAY_MILLIS);
+    }
+
+    /**
+     * Makes renames and config writes happen in the background, saving changes to the config
+     * file once no other change has been made for up to configDelayMillis.
+     *
+     * @param modelExecutor     Executor that runs on the thread which uses this Controller
+     * @param configDelayMillis Time a config write waits for more changes
+     */
+    public void startWriteBehind(Executor modelExecutor, long configDelayMillis) {
+        writeBehind = modelExecutor;
+        cachedData.startScheduledWrites(tagManager::getAvailableTags, modelExecutor,
+                configDelayMillis);
+    }
+
+    /**
+     * Renames every Image with a pending rename under the root Directory and writes the config
+     * file. In write-behind mode this happens in the background, batched with the other
+     * commits made while a batch is running.
+     *
+     * @return BatchResult of the renames, once they are applied and the config is written
+     */
+    public CompletableFuture<RenameExecutor.BatchResult> commit() {
+        if (writeBehind == null) {
+            RenameExecutor.BatchResult result = rootDirectory.updateImagesOSPathAll(renamer);
+            updateConfig();
+            return CompletableFuture.completedFuture(result);
+        }
+        return renamer.flushAsync(rootDirectory, writeBehind).thenCompose(result ->
+                cachedData.writeDataAsync(tagManager.getAvailableTags())
+                        .thenApply(written -> result));
+    }
+
+    /**
+     * Leaves write-behind mode and renames every Image with a pending rename under the root
+     * Directory before returning, waiting for the batch running in the background if any.
+     *
+     * @return BatchResult of the last renames
+     */
+    public RenameExecutor.BatchResult commitPendingChanges() {
+        writeBehind = null;
+        cachedData.stopScheduledWrites();
+        return rootDirectory.updateImagesOSPathAll(renamer);
+    }
+
     /**
      * Updates the available set of tags with every tag associated with Images in this directory.
      */
@@ -118,7 +293,9 @@ public class Controller {
      * Sets the current Directory to one level up the Directory tree.
      * <br>If it's not possible to go further up in the system storage return false.
      * <br>If it's possible to go one level up a Directory return true.
-     * <br>If the Directory above does not yet exist, create a new one.
+     * <br>If the Directory above does not yet exist, create a new one. Only its own folder is
+     * listed, the rest of its sub-Directories are listed when first needed or by
+     * scanInBackground.
      *
      * @return Whether or not the currentDirectory went up a directory.
      */
@@ -134,6 +311,10 @@ public class Controller {
                 setCurrentDirectory(new Directory(this, parentFilePath, getCurrentDirectory(),
                         cachedData));
                 setRootDirectory(getCurrentDirectory());
+                if (watcher != null) {
+                    // The old root's sub-tree is watched already
+                    watcher.watch(getRootDirectory());
+                }
 
                 return true;
             }
@@ -166,20 +347,60 @@ public class Controller {
      * @return Directory at filePath
      */
     public Directory search(File filePath) {
-        String rootPath = rootDirectory.getFile().getPath();
-        String directoryPath = filePath.getPath();
-
-        if (directoryPath.contains(rootPath)) {
-            return rootDirectory.getDirectory(filePath.getAbsoluteFile());
-        }
-
-        return null;
+        return rootDirectory.getDirectory(filePath.getAbsoluteFile());
     }
 
     //
     // Tag Manager Methods
     //
 
+    /**
+     * Return the TagStore Images keep their tags in.
+     *
+     * @return TagStore of the Images under the root Directory
+     */
+    public TagStore getTagStore() {
+        return tagStore;
+    }
+
+    /**
+     * Moves the tags of every Image under the root Directory to store and makes new Images keep
+     * their tags there, then writes the config file. Images renamed because their tags move
+     * into or out of their name get a history entry.
+     * <br>Images whose tags cannot be moved keep them where they were, and are moved by
+     * migrating again. store is saved as the root's TagStore once every Image has moved.
+     *
+     * @param store TagStore to keep tags in from now on
+     * @return BatchResult of the renames and tag writes
+     * @throws IllegalArgumentException If store cannot keep tags under the root Directory
+     */
+    public RenameExecutor.BatchResult migrateTags(TagStore store)
+            throws IllegalArgumentException {
+        if (!store.isSupported(rootDirectory.getFile())) {
+            throw new IllegalArgumentException("Cannot keep " + store.getName() + " tags in " +
+                    rootDirectory.getFile());
+        }
+        // Pending changes are made in the current TagStore first
+        rootDirectory.updateImagesOSPathAll(renamer);
+        // Every Image is listed with the current TagStore before it moves
+        ArrayList<Image> images = rootDirectory.getImagesInSubDirectories();
+
+        tagStore = store;
+        for (Image image : images) {
+            String oldName = image.getImageName();
+            if (image.moveTagsTo(store)) {
+                logHistory(image, oldName);
+            }
+        }
+        RenameExecutor.BatchResult result = rootDirectory.updateImagesOSPathAll(renamer);
+        // Until every Image has moved, the tags of some are still read from the old TagStore
+        if (result.getFailures().isEmpty()) {
+            cachedData.setTagStoreName(rootDirectory.getFile(), store.getName());
+        }
+        updateConfig();
+        return result;
+    }
+
     /**
      * Return all available tags and their associated Image objects.
      *
@@ -202,13 +423,60 @@ public class Controller {
         String oldName = image.getImageName();
         if (tagManager.addTagToImage(image, tag)) {
             image.addTag(tag);
-            logHistory(image, oldName);
+            logRename(image, oldName);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Return the number of Images changed after removing the tags in remove from and adding
+     * the tags in add to every Image in images.
+     * <br>Each Image's new name is worked out once, so it is renamed once in the OS's filesystem
+     * and gets a single history entry however many tags change. Images whose tags aren't kept
+     * in their name keep their name.
+     *
+     * @param images Images to change the tags of
+     * @param add    Tags to add to each Image
+     * @param remove Tags to remove from each Image
+     * @return Number of Images whose tags changed
+     * @throws IllegalArgumentException If an invalid character was in a tag to add, in which
+     *                                  case no Image is changed
+     */
+    public int applyTagChanges(Collection<Image> images, Set<String> add, Set<String> remove)
+            throws IllegalArgumentException {
+        for (String tag : add) {
+            tagManager.checkTag(tag);
+        }
+        for (String tag : add) {
+            tagManager.addTagToAvailableTags(tag);
+        }
+
+        int changed = 0;
+        for (Image image : images) {
+            HashSet<String> added = new HashSet<>();
+            for (String tag : add) {
+                if (tagManager.addTagToImage(image, tag)) {
+                    added.add(tag);
+                }
+            }
+            HashSet<String> removed = new HashSet<>();
+            for (String tag : remove) {
+                if (!add.contains(tag) && tagManager.untagImage(image, tag)) {
+                    removed.add(tag);
+                }
+            }
+
+            String oldName = image.getImageName();
+            if (image.changeTags(added, removed)) {
+                logRename(image, oldName);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     /**
      * Return if the tag was successfully added, throws IllegalArgumentException if an invalid
      * character was used.
@@ -219,7 +487,11 @@ public class Controller {
      * @throws IllegalArgumentException If an invalid character was in the tag
      */
     public boolean addTag(String tag) throws IllegalArgumentException {
-        return tagManager.addTagToAvailableTags(tag);
+        if (tagManager.addTagToAvailableTags(tag)) {
+            cachedData.scheduleWrite();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -253,10 +525,50 @@ public class Controller {
             return false;
         } else {
             tagManager.removeTagFromAvailableTags(tag);
+            cachedData.scheduleWrite();
             return true;
         }
     }
 
+    /**
+     * Starts renaming tag to newTag on every Image that has it, in the background, and returns
+     * the running job. Each renamed Image gets one history entry, and the config file is
+     * written once the job is done or cancelled.
+     *
+     * @param tag           Tag to rename
+     * @param newTag        New name of the tag, which must not be a tag yet
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     * @return Running TagRenameTask
+     * @throws IllegalArgumentException If newTag is already a tag or has an invalid character
+     */
+    public TagRenameTask renameTag(String tag, String newTag, Executor modelExecutor)
+            throws IllegalArgumentException {
+        if (tagManager.getImagesByTag(newTag) != null) {
+            throw new IllegalArgumentException("Tag already exists: " + newTag);
+        }
+        return mergeTags(Collections.singleton(tag), newTag, modelExecutor);
+    }
+
+    /**
+     * Starts replacing every tag in tags with into on every Image that has one of them, in the
+     * background, and returns the running job. Each changed Image gets one history entry, and
+     * the config file is written once the job is done or cancelled.
+     *
+     * @param tags          Tags to merge
+     * @param into          Tag to merge them into, new or existing
+     * @param modelExecutor Executor that runs on the thread which uses this Controller
+     * @return Running TagRenameTask
+     * @throws IllegalArgumentException If into has an invalid character
+     */
+    public TagRenameTask mergeTags(Collection<String> tags, String into, Executor modelExecutor)
+            throws IllegalArgumentException {
+        tagManager.addTagToAvailableTags(into);
+        TagRenameTask task = new TagRenameTask(tags, into, tagManager, renamer, rootDirectory,
+                this::logRename, modelExecutor);
+        task.whenDone((result, failure) -> commit());
+        return task.start();
+    }
+
     /**
      * Return true if the tag was successfully removed; false otherwise.
      * <br>Removes specified tag from Image.
@@ -269,7 +581,7 @@ public class Controller {
         //if(!(image.getTags().size() == 1 && image.getImageName().indexOf(tag) == 1)) {
         String oldName = image.getImageName();
         if (tagManager.removeTagFromImage(image, tag)) {
-            logHistory(image, oldName);
+            logRename(image, oldName);
             return true;
         } else {
             return false;
@@ -321,7 +633,19 @@ public class Controller {
      * @return Whether or not the move to the Directory was successful
      */
     public boolean moveFileToDirectory(File targetDirectory, File targetImage) {
-        Directory newDirectory = search(targetDirectory);
+        return moveFileToDirectory(search(targetDirectory), targetImage);
+    }
+
+    /**
+     * Move the Image file to the already resolved Directory newDirectory.
+     * <br>The file is moved by the next batch of renames, which copies it if newDirectory is
+     * on another filesystem.
+     *
+     * @param newDirectory Directory to move target to | null
+     * @param targetImage  Image file to move.
+     * @return Whether or not the move to the Directory was successful
+     */
+    public boolean moveFileToDirectory(Directory newDirectory, File targetImage) {
         if (newDirectory == null) {
             return false;
         }
@@ -333,6 +657,11 @@ public class Controller {
         }
 
         if (!currentDirectory.equals(newDirectory)) {
+            if (new File(newFilePath).exists() || newDirectory.getImage(new File(newFilePath))
+                    != null) {
+                // An Image with this name is already in newDirectory
+                return false;
+            }
             currentDirectory.removeFile(image.getFilePath());
             image.setFilePath(new File(newFilePath), newDirectory);
             newDirectory.addImage(image);
@@ -343,6 +672,60 @@ public class Controller {
         return true;
     }
 
+    /**
+     * Move the Images images to the Directory target.
+     * <br>The names in target are listed once and every Image is checked against them and the
+     * other Images of the move, then the Images that can go are moved in memory together and
+     * their files by one batch of renames, in parallel. Images that can't go stay where they
+     * are.
+     *
+     * @param images Images to move
+     * @param target Directory to move them to
+     * @return MoveSummary of what happened to each Image, once the batch is applied
+     * @throws IllegalArgumentException If target is null or isn't a folder
+     */
+    public CompletableFuture<MoveSummary> moveImages(Collection<Image> images, Directory target) {
+        if (target == null || !target.getFile().isDirectory()) {
+            throw new IllegalArgumentException("Not a folder: " + target);
+        }
+        String[] names = target.getFile().list();
+        HashSet<String> taken = new HashSet<>(names == null ? Collections.emptyList() :
+                Arrays.asList(names));
+        for (Image image : target.getImages()) {
+            taken.add(image.getImageName());
+        }
+
+        MoveSummary summary = new MoveSummary();
+        List<Image> moving = new ArrayList<>();
+        Set<Image> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Image image : images) {
+            if (!seen.add(image)) {
+                // Listed twice, so it already has its outcome
+                continue;
+            } else if (image.getCurrentDirectory() == target) {
+                summary.put(image, MoveSummary.Outcome.ALREADY_THERE);
+            } else if (!taken.add(image.getImageName())) {
+                summary.put(image, MoveSummary.Outcome.NAME_TAKEN);
+            } else {
+                moving.add(image);
+                summary.put(image, MoveSummary.Outcome.MOVED);
+            }
+        }
+        if (moving.isEmpty()) {
+            return CompletableFuture.completedFuture(summary);
+        }
+        target.moveImagesHere(moving);
+        return commit().thenApply(result -> {
+            for (RenameExecutor.Failure failure : result.getFailures()) {
+                if (!failure.isUnflushed() &&
+                        summary.getOutcome(failure.getImage()) == MoveSummary.Outcome.MOVED) {
+                    summary.putFailure(failure.getImage(), failure.getCause());
+                }
+            }
+            return summary;
+        });
+    }
+
     /**
      * Changes the name of the Image to nameToRevertTo and updates the Image's tags as well.
      *
@@ -354,21 +737,23 @@ public class Controller {
 
         HashSet<String> oldTags = image.getTags();
 
-        image.forceFilePath(new File(image.getFilePath().getParent() + File.separator +
-                nameToRevertTo));
+        image.forceFilePath(new File(image.getFilePath().getParentFile(), nameToRevertTo));
 
+        // Only the tags that differ between the two names are recorded again
         HashSet<String> tagsToRevertTo = image.getTags();
-        HashSet<String> maintainedTags = new HashSet<>(oldTags); // Tags that exist in both versions
-        maintainedTags.retainAll(tagsToRevertTo);
-
-        oldTags.removeAll(maintainedTags); // Tags to remove
         for (String tag : oldTags) {
-            removeTag(tag, image);
+            if (!tagsToRevertTo.contains(tag)) {
+                tagManager.untagImage(image, tag);
+            }
         }
-
-        tagsToRevertTo.removeAll(maintainedTags); // Tags to add
         for (String tag : tagsToRevertTo) {
-            addTag(image, tag);
+            if (!oldTags.contains(tag)) {
+                try {
+                    tagManager.addTagToImage(image, tag);
+                } catch (IllegalArgumentException e) {
+                    // Ignore tag
+                }
+            }
         }
 
         logHistory(image, oldName);
@@ -393,9 +778,9 @@ public class Controller {
     public ArrayList<String[]> getAllImageHistories() {
         ArrayList<String[]> listOfHistories = new ArrayList<>();
 
-        for (Image img : rootDirectory.getImagesInSubDirectories()) {
-            listOfHistories.addAll(compoundHistoryData(img.getFilePath(), img.getHistory()));
-        }
+        // Histories of Images that haven't been listed yet are still unused histories
+        rootDirectory.streamLoadedImagesInSubDirectories().forEach(img ->
+                listOfHistories.addAll(compoundHistoryData(img.getFilePath(), img.getHistory())));
 
         HashMap<File, ArrayList<String[]>> histories = cachedData.getUnusedHistories();
 
@@ -444,6 +829,19 @@ public class Controller {
         image.addHistory(log);
     }
 
+    /**
+     * Add a log to the Image's history if its name changed from oldName, as tags kept beside
+     * the name change without a rename.
+     *
+     * @param image   Image to log history for
+     * @param oldName Name of the image before its tags changed
+     */
+    private void logRename(Image image, String oldName) {
+        if (!image.getImageName().equals(oldName)) {
+            logHistory(image, oldName);
+        }
+    }
+
     /**
      * Finds and returns the suggested tag for image.
      *
@@ -467,9 +865,18 @@ public class Controller {
 
     /**
      * Update the config file with the new tags that are available and new imageHistories.
+     * <br>Only what changed since the last update is written, and nothing if nothing changed.
+     * Waits for the disk, so it is used when closing rather than when navigating.
      */
     public void updateConfig() {
-        cachedData.writeData(tagManager.getAvailableTags(), rootDirectory
-                .getImagesInSubDirectories());
+        cachedData.writeData(tagManager.getAvailableTags());
+    }
+
+    /**
+     * Saves a snapshot of the loaded Directory tree, so the next Controller opened on the same
+     * root only lists the folders that changed.
+     */
+    public void saveSnapshot() {
+        cachedData.writeSnapshot(rootDirectory);
     }
 }
\ No newline at end of file
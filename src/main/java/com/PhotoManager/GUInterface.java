@@ -2,21 +2,31 @@ package com.PhotoManager;
 
 import com.PhotoManager.model.Directory;
 import com.PhotoManager.model.Image;
+import com.PhotoManager.model.MoveProgress;
+import com.PhotoManager.model.RenameExecutor;
+import com.PhotoManager.model.ScanTask;
+import com.PhotoManager.model.TagRenameTask;
+import com.PhotoManager.model.TagStore;
 import com.PhotoManager.view.*;
 
 import com.PhotoManager.view.*;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controls the elements in displaying a graphical user interface to the user.
@@ -25,15 +35,26 @@ public class GUInterface extends Application {
     private Stage mainStage;
     private BorderPane rootLayout;
     private Controller controller;
+    private ScanTask scanTask;
+    private TagRenameTask tagRenameTask;
+    private static final Logger logger = Logger.getLogger(GUInterface.class.getName());
     private static final File resourceFile = new File(GUInterface.class.getResource("")
             .getPath()).getParentFile().getParentFile();
 
     /**
      * Main method of this program. Launches this GUI application when it is called.
+     * <br>With the arguments --migrate-tags &lt;filename|xattr|sidecar&gt; &lt;folder&gt;, moves
+     * the tags of every Image under folder to that tag store instead, without a GUI.
      *
      * @param args main method arguments
      */
     public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("--migrate-tags")) {
+            Controller controller = new Controller(new File(args[2]));
+            RenameExecutor.BatchResult result = controller.migrateTags(TagStore.forName(args[1]));
+            logger.log(Level.INFO, "Moved tags to " + args[1] + ": " + result);
+            return;
+        }
         launch(args);
     }
 
@@ -52,7 +73,98 @@ public class GUInterface extends Application {
      * @param controller the controller object to set this.controller to
      */
     public void setController(Controller controller) {
+        if (this.controller != null && this.controller != controller) {
+            this.controller.stopWatching();
+            stopScan();
+        }
         this.controller = controller;
+        // Apply changes made outside of PhotoManager on the JavaFX thread
+        controller.startWatching(Platform::runLater);
+        // Prune the histories of files deleted while PhotoManager wasn't running
+        controller.verifyHistories(Platform::runLater);
+        controller.addMoveProgressListener(this::showMoveProgress);
+    }
+
+    /**
+     * Shows how far the renames and moves running in the background have got below the
+     * current menu, unless a scan is showing its progress there.
+     *
+     * @param progress the latest progress of the running batch
+     */
+    private void showMoveProgress(MoveProgress progress) {
+        if (scanTask != null || tagRenameTask != null) {
+            return;
+        }
+        if (progress.isDone()) {
+            rootLayout.setBottom(null);
+            return;
+        }
+        Label status = new Label("Moving: " + progress);
+        status.setPadding(new Insets(5));
+        rootLayout.setBottom(status);
+    }
+
+    /**
+     * Shows the progress of task below the current menu until it is done, with a button to
+     * stop it. Folders it hasn't reached when stopped are listed when they are opened.
+     *
+     * @param task the running scan of the current controller's Directory tree
+     */
+    public void showScanProgress(ScanTask task) {
+        stopScan();
+        scanTask = task;
+
+        Label status = new Label("Scanning...");
+        Button stop = new Button("Stop Scan");
+        stop.setOnAction(event -> task.cancel());
+        HBox progressBar = new HBox(10, status, stop);
+        progressBar.setPadding(new Insets(5));
+        rootLayout.setBottom(progressBar);
+
+        task.addProgressListener(progress -> status.setText("Scanning: " + progress));
+        task.whenDone((root, failure) -> {
+            if (scanTask == task) {
+                scanTask = null;
+                rootLayout.setBottom(null);
+            }
+        });
+    }
+
+    /**
+     * Shows the progress of task below the current menu until it is done, with a button to
+     * stop it. Images it hasn't reached when stopped keep their old tag.
+     *
+     * @param task the running tag rename of the current controller's Directory tree
+     */
+    public void showTagRenameProgress(TagRenameTask task) {
+        tagRenameTask = task;
+        Label status = new Label("Renaming tag...");
+        Button stop = new Button("Stop");
+        stop.setOnAction(event -> task.cancel());
+        HBox progressBar = new HBox(10, status, stop);
+        progressBar.setPadding(new Insets(5));
+        rootLayout.setBottom(progressBar);
+
+        task.addProgressListener(progress -> status.setText("Renaming tag: " + progress));
+        task.whenDone((result, failure) -> {
+            if (tagRenameTask == task) {
+                tagRenameTask = null;
+            }
+            if (rootLayout.getBottom() == progressBar) {
+                rootLayout.setBottom(null);
+            }
+        });
+    }
+
+    /**
+     * Stops the running scan, if any.
+     */
+    private void stopScan() {
+        if (scanTask != null) {
+            scanTask.cancel();
+            scanTask = null;
+            rootLayout.setBottom(null);
+        }
     }
 
     /**
@@ -312,7 +424,12 @@ public class GUInterface extends Application {
 
     @Override
     public void stop() {
-        if (controller != null)
+        if (controller != null) {
+            stopScan();
+            controller.stopWatching();
+            controller.commitPendingChanges();
             controller.updateConfig();
+            controller.saveSnapshot();
+        }
     }
 }
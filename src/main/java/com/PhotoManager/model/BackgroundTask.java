@@ -0,0 +1,176 @@
+package com.PhotoManager.model;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Work that runs on its own background thread, reports progress and can be cancelled.
+ * <br>Progress and completion are delivered through the Executor given on construction, so
+ * listeners run on the thread which owns the model (the JavaFX thread in the GUI). Progress is
+ * coalesced: if the listeners are still waiting to hear about earlier progress, they are only
+ * told about the latest.
+ *
+ * @param <T> Type of the result
+ * @param <P> Type of the progress reports
+ */
+public abstract class BackgroundTask<T, P> {
+
+    private final String name;
+    private final Executor modelExecutor;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final List<Consumer<? super P>> progressListeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<P> pendingProgress = new AtomicReference<>();
+    private volatile boolean cancelled;
+    private volatile boolean started;
+
+    /**
+     * Constructs a BackgroundTask that reports through modelExecutor.
+     *
+     * @param name          Name of the thread the task runs on
+     * @param modelExecutor Executor that runs on the thread which owns the model
+     */
+    protected BackgroundTask(String name, Executor modelExecutor) {
+        this.name = name;
+        this.modelExecutor = modelExecutor;
+    }
+
+    /**
+     * Return the result of this task, computed on the background thread.
+     *
+     * @return Result of this task
+     * @throws Exception If the task fails
+     * @throws CancellationException If the task noticed it was cancelled
+     */
+    protected abstract T compute() throws Exception;
+
+    /**
+     * Starts running this task on a new background thread.
+     *
+     * @return This task
+     * @throws IllegalStateException If this task was already started
+     */
+    public BackgroundTask<T, P> start() {
+        if (started) {
+            throw new IllegalStateException("Task already started: " + name);
+        }
+        started = true;
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    private void run() {
+        try {
+            checkCancelled();
+            T value = compute();
+            checkCancelled();
+            result.complete(value);
+        } catch (CancellationException e) {
+            result.cancel(false);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Asks this task to stop. A task stops at the next point where it checks for cancellation,
+     * leaving the model in a usable state.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Return whether this task has been asked to stop.
+     *
+     * @return true if cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Return whether this task has finished, failed or stopped after being cancelled.
+     *
+     * @return true if this task is done
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Waits for this task to finish and return its result.
+     *
+     * @return Result of this task
+     * @throws InterruptedException  If interrupted while waiting
+     * @throws ExecutionException    If the task failed
+     * @throws CancellationException If the task stopped after being cancelled
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    /**
+     * Adds a listener that is told about the progress of this task on the model's thread.
+     *
+     * @param listener Listener of progress reports
+     */
+    public void addProgressListener(Consumer<? super P> listener) {
+        progressListeners.add(listener);
+    }
+
+    /**
+     * Runs action on the model's thread once this task is done, with either its result or
+     * the reason it failed. A cancelled task fails with a CancellationException.
+     * <br>Progress reported before the task finished is delivered before action runs.
+     *
+     * @param action Action given the result | null and the failure | null
+     */
+    public void whenDone(BiConsumer<? super T, ? super Throwable> action) {
+        result.whenCompleteAsync(action, modelExecutor);
+    }
+
+    /**
+     * Reports progress to the listeners of this task.
+     *
+     * @param progress Latest progress of this task
+     */
+    protected void publish(P progress) {
+        if (pendingProgress.getAndSet(progress) == null) {
+            modelExecutor.execute(() -> {
+                P latest = pendingProgress.getAndSet(null);
+                for (Consumer<? super P> listener : progressListeners) {
+                    listener.accept(latest);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs action on the model's thread.
+     *
+     * @param action Change to the model
+     */
+    protected void runOnModelThread(Runnable action) {
+        modelExecutor.execute(action);
+    }
+
+    /**
+     * Stops the task if it has been cancelled.
+     *
+     * @throws CancellationException If the task has been cancelled
+     */
+    protected void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException(name + " cancelled");
+        }
+    }
+}
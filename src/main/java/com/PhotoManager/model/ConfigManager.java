@@ -3,30 +3,328 @@ package com.PhotoManager.model;
 import com.PhotoManager.GUInterface;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * A manager to regulate the getting and setting of contents for the config file.
+ * <br>The config file holds the tags and a HistoryStore next to it the Image histories, which
+ * are only decoded when they are used. Together they are a checkpoint. Changes to the tags and
+ * Image histories made since are appended to a log next to it as they are saved, so saving
+ * costs as much as what changed, not as much as the library. Once the log grows as large as
+ * the checkpoint, it is compacted into a new checkpoint in the background. Log records replace
+ * or remove a whole history, so a log replayed twice over a checkpoint still gives the same
+ * result.
+ * <br>The config file ends with a line holding the CRC32 of the lines before it, and the
+ * previous config file is kept next to it. A config file whose checksum doesn't match is not
+ * used, the previous one is used instead.
+ * <br>Histories in the lines of a config file written before the HistoryStore are converted
+ * to it on the first start.
+ * <br>Nothing is read for a history until an Image at its file path asks for it, so starting
+ * costs the same however many Images have a history. Histories of files that no longer exist
+ * are pruned by verifyHistoriesAsync in the background instead.
+ * <br>Once startScheduledWrites is called, a change waits WRITE_DELAY_MILLIS for others before
+ * it is saved, so a burst of changes is saved in one write on the config writer's thread.
  */
 public class ConfigManager {
 
+    /**
+     * File path to the folder the config file and the files next to it are kept in by default.
+     **/
+    private final static File CONFIG_DIRECTORY = new File(GUInterface.class.getResource("")
+            .getPath()).getParentFile().getParentFile();
+
     /**
      * File path to the config file.
      **/
-    private final static File CONFIG_FILE = new File(new File(GUInterface.class
-            .getResource("").getPath()).getParentFile().getParentFile(), "config.txt");
+    private final File configFile;
+
+    /**
+     * File path to the config file written before the config file.
+     **/
+    private final File previousConfigFile;
+
+    /**
+     * Start of the last line of the config file, followed by the CRC32 of the lines before it
+     * in hexadecimal.
+     */
+    static final String CHECKSUM_PREFIX = "#crc32 ";
+
+    /**
+     * Name of the first generation of the Image histories of the config file, in the format of
+     * HistoryStore. Each compaction writes the next generation, "histories-1.dat" and so on,
+     * rather than replace a file that may still be mapped, which Windows doesn't allow.
+     **/
+    private final static String HISTORY_STORE_NAME = "histories.dat";
 
+    /**
+     * File path to the log of changes saved since the config file was last written.
+     **/
+    private final File logFile;
+
+    /**
+     * Smallest log that is compacted into the config file. A larger config file is only
+     * rewritten once the log is as large as it.
+     */
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+
+    private static final String TAG_ADDED = "T+";
+    private static final String TAG_REMOVED = "T-";
+    private static final String HISTORY_PUT = "+";
+    private static final String HISTORY_REMOVED = "-";
+
+    /**
+     * File paths checked by verifyHistoriesAsync before it pauses for VERIFY_PAUSE_MILLIS, so
+     * it doesn't hold the disk while Directories are listed.
+     */
+    static final int VERIFY_BATCH = 256;
+    static final long VERIFY_PAUSE_MILLIS = 20;
+
+    /**
+     * Default time a scheduled write waits for more changes before it saves them.
+     */
+    public static final long WRITE_DELAY_MILLIS = 2000;
+
+    /**
+     * File path to the snapshot of the last scanned Directory tree, next to the config file.
+     **/
+    private final File snapshotFile;
+
+    /**
+     * File path to the journal of renames not yet saved in the config file.
+     **/
+    private final File journalFile;
+
+    /**
+     * File path to the names of the TagStores the Images under each root keep their tags in,
+     * next to the config file.
+     **/
+    private final File tagStoreFile;
+
+    /**
+     * Histories changed in the log since cachedStore was written, with null for the ones that
+     * were removed, given to an Image or pruned. Histories of other file paths are read from
+     * cachedStore when they are first used. Only used on the model's thread.
+     */
     private HashMap<File, ArrayList<String[]>> cachedHistories;
+    private HistoryStore cachedStore;
+
+    private RenameJournal journal;
 
+    /**
+     * Tags as last saved.
+     */
     private HashSet<String> cachedTags;
 
+    /**
+     * Images whose file path or history changed since they were last saved, and the file
+     * paths of saved histories whose Image was deleted. Only used on the model's thread.
+     */
+    private final LinkedHashSet<Image> changedImages = new LinkedHashSet<>();
+    private final ArrayList<File> removedHistories = new ArrayList<>();
+
+    /**
+     * Id of the last rename batch whose histories were saved, none at first so the first save
+     * empties the journal recovered from an earlier run.
+     */
+    private long savedBatch = -1;
+
+    /**
+     * Last write started by writeDataAsync.
+     */
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    /**
+     * Tags and thread of scheduled writes, null until startScheduledWrites, and the write that
+     * is waiting to be saved. Only used on the model's thread.
+     */
+    private Supplier<HashSet<String>> scheduledTags;
+    private Executor scheduledExecutor;
+    private long writeDelayMillis = WRITE_DELAY_MILLIS;
+    private ScheduledFuture<?> scheduledWrite;
+
+    /**
+     * Tags and histories in the config file and log, only used on the config writer's thread
+     * once this ConfigManager is constructed. savedHistories holds the histories changed in
+     * the log since savedStore was written, with null for the removed ones.
+     */
+    private HashSet<String> savedTags;
+    private HistoryStore savedStore;
+    private HashMap<File, ArrayList<String[]>> savedHistories;
+    /**
+     * Generation of the HistoryStore file savedStore reads | -1 if there is none.
+     */
+    private int storeGeneration = -1;
+    private long checkpointBytes;
+    private long logBytes;
+
     private Logger logger = Logger.getLogger(Directory.class.getName());
 
+    /**
+     * Writes the config file in the background, one write at a time, and times scheduled
+     * writes.
+     */
+    private final ScheduledExecutorService configWriter =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "config-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Checks whether the files of saved histories still exist in the background.
+     */
+    private final ExecutorService historyVerifier = Executors.newSingleThreadExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "history-verifier");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
     public ConfigManager() {
+        this(CONFIG_DIRECTORY);
+    }
+
+    /**
+     * Keeps the config file and the files next to it in directory.
+     *
+     * @param directory Existing folder to keep the config files in
+     */
+    ConfigManager(File directory) {
+        configFile = new File(directory, "config.txt");
+        previousConfigFile = new File(directory, "config.txt.prev");
+        logFile = new File(directory, "history.log");
+        snapshotFile = new File(directory, "snapshot.dat");
+        journalFile = new File(directory, "journal.dat");
+        tagStoreFile = new File(directory, "tagstore.txt");
         initializeCachedData();
+        recoverJournal();
+    }
+
+    /**
+     * Finishes the renames journaled by an earlier run that weren't saved in the config file,
+     * and moves their histories to the renamed files.
+     */
+    private void recoverJournal() {
+        journal = new RenameJournal(journalFile);
+        StringBuilder records = new StringBuilder();
+        for (RenameJournal.Entry entry : journal.recover()) {
+            cachedHistories.put(entry.getSource(), null);
+            records.append(HISTORY_REMOVED).append(entry.getSource()).append("\n");
+            if (!entry.getHistory().isEmpty()) {
+                cachedHistories.put(entry.getTarget(), entry.getHistory());
+                records.append(HISTORY_PUT);
+                appendFileLine(records, entry.getTarget(), entry.getHistory());
+            }
+        }
+        if (records.length() > 0) {
+            appendLog(records.toString());
+        }
+    }
+
+    /**
+     * Return the journal of renames whose histories are saved by this ConfigManager.
+     *
+     * @return RenameJournal next to the config file
+     */
+    public RenameJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Return the name of the TagStore the Images under root keep their tags in, as last set by
+     * setTagStoreName for root or the closest folder above it.
+     *
+     * @param root FilePath to a root Directory
+     * @return Name of a TagStore, FilenameTagStore.NAME by default
+     */
+    public String getTagStoreName(File root) {
+        Path rootPath = root.getAbsoluteFile().toPath().normalize();
+        Path closest = null;
+        String name = FilenameTagStore.NAME;
+        for (Map.Entry<Path, String> entry : readTagStoreNames().entrySet()) {
+            if (rootPath.startsWith(entry.getKey()) && (closest == null ||
+                    entry.getKey().getNameCount() > closest.getNameCount())) {
+                closest = entry.getKey();
+                name = entry.getValue();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Saves the name of the TagStore the Images under root keep their tags in. The TagStores
+     * saved for folders under root are forgotten, as their Images are under root.
+     *
+     * @param root FilePath to a root Directory
+     * @param name Name of a TagStore
+     */
+    public void setTagStoreName(File root, String name) {
+        Path rootPath = root.getAbsoluteFile().toPath().normalize();
+        LinkedHashMap<Path, String> names = readTagStoreNames();
+        names.keySet().removeIf(path -> path.startsWith(rootPath));
+        if (!name.equals(FilenameTagStore.NAME)) {
+            names.put(rootPath, name);
+        }
+        StringBuilder data = new StringBuilder();
+        for (Map.Entry<Path, String> entry : names.entrySet()) {
+            data.append(entry.getValue()).append('|').append(entry.getKey()).append("\n");
+        }
+        try {
+            Files.write(tagStoreFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Return the name of the TagStore saved for each root, in the format:
+     * <br>name|rootPath
+     * <br>A line without a root was written when one TagStore was saved for every root, and
+     * is ignored.
+     */
+    private LinkedHashMap<Path, String> readTagStoreNames() {
+        LinkedHashMap<Path, String> names = new LinkedHashMap<>();
+        if (!tagStoreFile.exists()) {
+            return names;
+        }
+        try {
+            for (String line : Files.readAllLines(tagStoreFile.toPath(),
+                    StandardCharsets.UTF_8)) {
+                int separator = line.indexOf('|');
+                if (separator > 0) {
+                    names.put(Paths.get(line.substring(separator + 1)),
+                            line.substring(0, separator));
+                }
+            }
+        } catch (IOException | InvalidPathException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+        return names;
     }
 
     /**
@@ -45,13 +343,16 @@ public class ConfigManager {
      * @return Image history of Image at &lt;filePath&gt; | null
      */
     public ArrayList<String[]> getImageHistory(File filePath) {
-        if (cachedHistories != null && cachedHistories.containsKey(filePath)) {
-            ArrayList<String[]> temp = cachedHistories.get(filePath);
-            cachedHistories.remove(filePath);
-            return temp;
-        } else {
+        if (cachedHistories == null) {
             return null;
+        } else if (cachedHistories.containsKey(filePath)) {
+            return cachedHistories.put(filePath, null);
+        }
+        ArrayList<String[]> history = readHistory(filePath);
+        if (history != null) {
+            cachedHistories.put(filePath, null);
         }
+        return history;
     }
 
     /**
@@ -60,110 +361,722 @@ public class ConfigManager {
      * @return HashMap&lt;File, ArrayList&lt;String[]&gt;&gt; of all unused File histories
      */
     public HashMap<File, ArrayList<String[]>> getUnusedHistories() {
-        return new HashMap<>(cachedHistories);
+        HashMap<File, ArrayList<String[]>> histories = new HashMap<>();
+        for (File filePath : storedPaths(cachedStore)) {
+            if (!cachedHistories.containsKey(filePath)) {
+                ArrayList<String[]> history = readHistory(filePath);
+                if (history != null) {
+                    histories.put(filePath, history);
+                }
+            }
+        }
+        for (Map.Entry<File, ArrayList<String[]>> entry : cachedHistories.entrySet()) {
+            if (entry.getValue() != null) {
+                histories.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return histories;
+    }
+
+    /**
+     * Return the history of filePath decoded from cachedStore | null if it cannot be read.
+     */
+    private ArrayList<String[]> readHistory(File filePath) {
+        try {
+            return cachedStore.get(filePath);
+        } catch (IllegalStateException e) {
+            logger.log(Level.WARNING, e.toString());
+            logger.addHandler(new ConsoleHandler());
+            return null;
+        }
     }
 
     /**
-     * Return the cached histories in config.txt for each Image that still exists in a
-     * HashMap&lt;File, ArrayList&lt;String[]&gt;&gt;.
+     * Reads the tags of the config file, opens the HistoryStore and replays the log over them,
+     * without reading or checking any history.
      */
     private void initializeCachedData() {
-        // Check if the file exists.
-        cachedTags = new HashSet<>();
+        savedTags = new HashSet<>();
+        savedHistories = new HashMap<>();
+        savedStore = HistoryStore.empty();
+        String config = readConfig();
+        if (config != null) {
+            int end = config.indexOf('\n');
+            String line = end == -1 ? config : config.substring(0, end);
+            if (!line.equals("")) {
+                savedTags.addAll(Arrays.asList(line.split(", ")));
+            }
+            if (historyStoreGenerations().isEmpty()) {
+                convertHistories(config);
+            }
+        }
+        // Fall back to an older generation rather than lose every history
+        for (int generation : historyStoreGenerations()) {
+            try {
+                savedStore = HistoryStore.open(historyStoreFile(generation));
+                storeGeneration = generation;
+                break;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.toString());
+                logger.addHandler(new ConsoleHandler());
+            }
+        }
+        deleteOldHistoryStores();
+        checkpointBytes = configFile.length() + (storeGeneration == -1 ? 0 :
+                historyStoreFile(storeGeneration).length());
+        replayLog();
+
+        cachedTags = new HashSet<>(savedTags);
+        cachedStore = savedStore;
         cachedHistories = new HashMap<>();
-        if (CONFIG_FILE.exists()) {
-            ArrayList<String[]> histories;
+        for (Map.Entry<File, ArrayList<String[]>> entry : savedHistories.entrySet()) {
+            cachedHistories.put(entry.getKey(), entry.getValue() == null ? null :
+                    new ArrayList<>(entry.getValue()));
+        }
+    }
+
+    /**
+     * Return the contents of the config file without its checksum, or of the previous config
+     * file if the config file is missing or corrupt | null if neither can be used.
+     */
+    private String readConfig() {
+        for (File file : new File[]{configFile, previousConfigFile}) {
+            if (!file.exists()) {
+                continue;
+            }
             try {
-                BufferedReader file = new BufferedReader(new FileReader(CONFIG_FILE));
-                String line = file.readLine();
-                if (line != null) {
-                    if (!line.equals("")) {
-                        cachedTags.addAll(Arrays.asList(line.split(", ")));
-                    }
-                    line = file.readLine(); // First Image's history
-                    // While there is another PhotoManager.model.Image's history to look at
-                    while (line != null) {
-                        histories = new ArrayList<>();
-                        String[] lineElements = line.split("\\|");
-                        File filePath = new File(lineElements[0]);
-                        // Only return the PhotoManager.model.Image history if that Image still exists.
-                        if (filePath.exists()) {
-                            cachedHistories.put(filePath, histories);
-
-                            for (int i = 1; i < lineElements.length; i++) {
-                                histories.add(lineElements[i].split(";"));
-                            }
-                        }
-                        line = file.readLine();
-                    }
+                String config = readChecked(file);
+                if (file == previousConfigFile) {
+                    logger.log(Level.WARNING, "Using the previous config file " + file);
+                    logger.addHandler(new ConsoleHandler());
                 }
-
+                return config;
             } catch (IOException e) {
-                logger.log(Level.WARNING, e.toString());
+                logger.log(Level.WARNING, "Error: " + e);
                 logger.addHandler(new ConsoleHandler());
             }
         }
+        return null;
+    }
+
+    /**
+     * Return the contents of file without its checksum line, once the checksum is verified.
+     * Only a file without any checksum line is read unchecked, as it was written before config
+     * files had one.
+     *
+     * @param file Config file
+     * @return Contents of file before the checksum line
+     * @throws IOException If file cannot be read or its checksum is damaged or doesn't match
+     */
+    static String readChecked(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int end = bytes.length;
+        if (end > 0 && bytes[end - 1] == '\n') {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && bytes[start - 1] != '\n') {
+            start--;
+        }
+        String last = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        if (!last.startsWith(CHECKSUM_PREFIX)) {
+            if (hasChecksumLine(bytes)) {
+                throw new IOException("Damaged checksum in " + file);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, start);
+        if (!last.equals(CHECKSUM_PREFIX + Long.toHexString(checksum.getValue()))) {
+            throw new IOException("Checksum mismatch in " + file);
+        }
+        return new String(bytes, 0, start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return whether a line after the tags in the bytes of a config file starts with #, which
+     * only a checksum line does since a history line starts with a file path.
+     */
+    private static boolean hasChecksumLine(byte[] bytes) {
+        for (int i = 1; i < bytes.length; i++) {
+            if (bytes[i] == '#' && bytes[i - 1] == '\n') {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Write tags and fileHistory to the config file in the format:
-     * <br>filePath1|oldName,newName,timeStamp|oldName,newName,timeStamp..
-     * <br>filePath2|..
+     * Converts the histories in the lines of a config file written before the HistoryStore.
      *
-     * @param images ArrayList of String of all Images
+     * @param config Contents of the config file, as verified by readConfig
+     */
+    private void convertHistories(String config) {
+        try {
+            File storeFile = historyStoreFile(0);
+            int converted = HistoryStore.convert(config, storeFile);
+            logger.log(Level.INFO, "Converted " + converted + " histories to " + storeFile);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Return the file of a generation of the HistoryStore.
+     */
+    private File historyStoreFile(int generation) {
+        return new File(configFile.getParentFile(), generation == 0 ? HISTORY_STORE_NAME :
+                "histories-" + generation + ".dat");
+    }
+
+    /**
+     * Return the generations of the HistoryStore in the folder of the config file, newest
+     * first.
+     */
+    private List<Integer> historyStoreGenerations() {
+        List<Integer> generations = new ArrayList<>();
+        String[] names = configFile.getParentFile().list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.equals(HISTORY_STORE_NAME)) {
+                    generations.add(0);
+                } else if (name.matches("histories-[1-9][0-9]{0,8}\\.dat")) {
+                    generations.add(Integer.parseInt(name.substring(10, name.length() - 4)));
+                }
+            }
+        }
+        generations.sort(Collections.reverseOrder());
+        return generations;
+    }
+
+    /**
+     * Deletes the generations of the HistoryStore older than the one savedStore reads. One
+     * that is still mapped can't be deleted on Windows and is deleted on a later compaction or
+     * start instead.
      */
-    public void writeData(HashSet<String> availableTags, ArrayList<Image> images) {
+    private void deleteOldHistoryStores() {
+        for (int generation : historyStoreGenerations()) {
+            if (generation < storeGeneration) {
+                try {
+                    Files.deleteIfExists(historyStoreFile(generation).toPath());
+                } catch (IOException e) {
+                    // Still mapped, by cachedStore or a HistoryStore not yet collected
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the file paths of the histories in store, none if it is corrupt.
+     */
+    private List<File> storedPaths(HistoryStore store) {
         try {
-            FileWriter writer = new FileWriter(CONFIG_FILE);
+            return store.paths();
+        } catch (IllegalStateException e) {
+            logger.log(Level.WARNING, e.toString());
+            logger.addHandler(new ConsoleHandler());
+            return Collections.emptyList();
+        }
+    }
 
-            writer.write(availableTags.toString().substring(1, availableTags.toString().length()
-                    - 1) + "\n");
+    /**
+     * Applies the records of the log to the tags and histories read from the config file. A
+     * record cut short by a crash is dropped from the log.
+     */
+    private void replayLog() {
+        if (!logFile.exists()) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(logFile.toPath());
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            if (end != bytes.length) {
+                try (FileChannel channel = FileChannel.open(logFile.toPath(),
+                        StandardOpenOption.WRITE)) {
+                    channel.truncate(end);
+                }
+            }
+            applyRecords(new String(bytes, 0, end, StandardCharsets.UTF_8));
+            logBytes = end;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e.toString());
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
 
-            for (Image image : images) {
-                File imageFile = image.getFilePath();
+    /**
+     * Applies each line of records to savedTags and savedHistories.
+     */
+    private void applyRecords(String records) {
+        int start = 0;
+        int end;
+        while ((end = records.indexOf('\n', start)) != -1) {
+            String record = records.substring(start, end);
+            if (record.startsWith(TAG_ADDED)) {
+                savedTags.add(record.substring(TAG_ADDED.length()));
+            } else if (record.startsWith(TAG_REMOVED)) {
+                savedTags.remove(record.substring(TAG_REMOVED.length()));
+            } else if (record.startsWith(HISTORY_PUT)) {
+                HistoryStore.parseLine(record.substring(HISTORY_PUT.length()), savedHistories);
+            } else if (record.startsWith(HISTORY_REMOVED)) {
+                savedHistories.put(new File(record.substring(HISTORY_REMOVED.length())), null);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Records that the file path or history of image changed, to be saved by the next
+     * writeData.
+     *
+     * @param image Image that changed
+     */
+    void imageChanged(Image image) {
+        changedImages.add(image);
+        scheduleWrite();
+    }
+
+    /**
+     * Records that the file of image was deleted, so its history is removed by the next
+     * writeData.
+     *
+     * @param image Image whose file was deleted
+     */
+    void imageDeleted(Image image) {
+        changedImages.remove(image);
+        if (image.getHistoryPath() != null) {
+            removedHistories.add(image.getHistoryPath());
+            image.setHistoryPath(null);
+            scheduleWrite();
+        }
+    }
 
-                ArrayList<String[]> imageHistory = image.getHistory();
+    /**
+     * Makes every change to an Image and every call to scheduleWrite save the changes made
+     * since the last save once delayMillis pass. Changes made in the meantime are saved by
+     * the same write.
+     *
+     * @param availableTags Tags to save, asked for on the model's thread when a write happens
+     * @param modelExecutor Executor that runs on the thread which uses this ConfigManager
+     * @param delayMillis   Time to wait for more changes before saving them
+     */
+    public void startScheduledWrites(Supplier<HashSet<String>> availableTags,
+                                     Executor modelExecutor, long delayMillis) {
+        scheduledTags = availableTags;
+        scheduledExecutor = modelExecutor;
+        writeDelayMillis = delayMillis;
+    }
+
+    /**
+     * Stops scheduling writes. Changes scheduled to be saved are saved by the next writeData.
+     */
+    public void stopScheduledWrites() {
+        scheduledExecutor = null;
+        scheduledTags = null;
+        if (scheduledWrite != null) {
+            scheduledWrite.cancel(false);
+            scheduledWrite = null;
+        }
+    }
 
-                if (imageHistory.size() != 0) {
-                    writer.write(compileFileLine(imageFile, imageHistory));
+    /**
+     * Schedules a write of the changes made since the last save, unless one is already
+     * waiting or scheduled writes haven't been started. Never waits for the disk.
+     */
+    public void scheduleWrite() {
+        if (scheduledExecutor == null || scheduledWrite != null) {
+            return;
+        }
+        Supplier<HashSet<String>> availableTags = scheduledTags;
+        Executor modelExecutor = scheduledExecutor;
+        scheduledWrite = configWriter.schedule(() -> modelExecutor.execute(() -> {
+            scheduledWrite = null;
+            writeDataAsync(availableTags.get());
+        }), writeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return whether anything is waiting to be saved besides the tags.
+     *
+     * @return Whether an Image history changed or a rename batch committed since the last save
+     */
+    public boolean hasChanges() {
+        return !changedImages.isEmpty() || !removedHistories.isEmpty() ||
+                journal.getLastCommitted() != savedBatch;
+    }
+
+    /**
+     * Saves the changes to tags and fileHistory since the last save. The config file holds
+     * the tags in the format:
+     * <br>tag1, tag2..
+     * <br>and the log a history per line in the format:
+     * <br>+filePath1|oldName;newName;timeStamp|oldName;newName;timeStamp..
+     * <br>Waits for the writes started by writeDataAsync before it, and saves the changes a
+     * scheduled write is waiting for now instead.
+     *
+     * @param availableTags Tags to save
+     */
+    public void writeData(HashSet<String> availableTags) {
+        if (scheduledWrite != null) {
+            scheduledWrite.cancel(false);
+            scheduledWrite = null;
+        }
+        writeDataAsync(availableTags).join();
+    }
+
+    /**
+     * Compiles the changes to tags and fileHistory since the last save on the calling thread,
+     * which must be the model's thread, then appends them to the log in the background. Writes
+     * happen one at a time in the order they were started, and the log is compacted into the
+     * config file after a write that makes it large enough. Nothing is written if nothing
+     * changed.
+     *
+     * @param availableTags Tags to save
+     * @return Future that completes once the changes are written
+     */
+    public CompletableFuture<Void> writeDataAsync(HashSet<String> availableTags) {
+        if (!hasChanges() && availableTags.equals(cachedTags)) {
+            return lastWrite;
+        }
+        StringBuilder records = new StringBuilder();
+        for (String tag : availableTags) {
+            if (!cachedTags.contains(tag)) {
+                records.append(TAG_ADDED).append(tag).append("\n");
+            }
+        }
+        for (String tag : cachedTags) {
+            if (!availableTags.contains(tag)) {
+                records.append(TAG_REMOVED).append(tag).append("\n");
+            }
+        }
+        cachedTags = new HashSet<>(availableTags);
+
+        for (File filePath : removedHistories) {
+            records.append(HISTORY_REMOVED).append(filePath).append("\n");
+        }
+        removedHistories.clear();
+        for (Image image : changedImages) {
+            File imageFile = image.getFilePath();
+            File savedFile = image.getHistoryPath();
+            ArrayList<String[]> imageHistory = image.getHistory();
+            if (savedFile != null && !savedFile.equals(imageFile)) {
+                records.append(HISTORY_REMOVED).append(savedFile).append("\n");
+            }
+            if (imageHistory.size() != 0) {
+                records.append(HISTORY_PUT);
+                appendFileLine(records, imageFile, imageHistory);
+                image.setHistoryPath(imageFile);
+            } else {
+                image.setHistoryPath(null);
+            }
+        }
+        changedImages.clear();
+
+        // The histories of every batch committed so far are in records or already saved
+        long committed = journal.getLastCommitted();
+        savedBatch = committed;
+        String data = records.toString();
+        lastWrite = CompletableFuture.runAsync(() -> {
+            if (data.isEmpty() || appendLog(data)) {
+                journal.checkpoint(committed);
+            }
+            if (logBytes >= Math.max(COMPACT_MIN_BYTES, checkpointBytes)) {
+                compact();
+            }
+        }, configWriter);
+        return lastWrite;
+    }
+
+    /**
+     * Removes the saved histories whose files no longer exist, in the background. The file
+     * paths of the histories are checked on a low priority thread, pausing every VERIFY_BATCH
+     * paths, and the ones found missing are checked again and removed from the log one write
+     * after the writes started before them. They are then forgotten through modelExecutor, so
+     * they are no longer unused histories.
+     *
+     * @param modelExecutor Executor that runs on the thread which uses this ConfigManager
+     * @return Future of the number of histories removed
+     */
+    public CompletableFuture<Integer> verifyHistoriesAsync(Executor modelExecutor) {
+        return CompletableFuture.supplyAsync(this::savedPaths, configWriter)
+                .thenApplyAsync(this::findMissing, historyVerifier)
+                .thenApplyAsync(this::removeMissing, configWriter)
+                .thenApplyAsync(removed -> {
+                    for (File filePath : removed) {
+                        cachedHistories.put(filePath, null);
+                    }
+                    return removed.size();
+                }, modelExecutor);
+    }
+
+    /**
+     * Return the file paths of the saved histories, on the config writer's thread.
+     */
+    private List<File> savedPaths() {
+        List<File> paths = new ArrayList<>(storedPaths(savedStore));
+        paths.removeIf(savedHistories::containsKey);
+        for (Map.Entry<File, ArrayList<String[]>> entry : savedHistories.entrySet()) {
+            if (entry.getValue() != null) {
+                paths.add(entry.getKey());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Return the file paths in paths whose files don't exist, pausing every VERIFY_BATCH.
+     */
+    private List<File> findMissing(List<File> paths) {
+        List<File> missing = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0 && i % VERIFY_BATCH == 0) {
+                try {
+                    Thread.sleep(VERIFY_PAUSE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
+            if (!paths.get(i).exists()) {
+                missing.add(paths.get(i));
+            }
+        }
+        return missing;
+    }
 
-            for (File key : cachedHistories.keySet()) {
-                writer.write(compileFileLine(key, cachedHistories.get(key)));
+    /**
+     * Removes the saved histories of the file paths in missing that are still saved and still
+     * don't exist, on the config writer's thread, and return their file paths.
+     */
+    private List<File> removeMissing(List<File> missing) {
+        List<File> removed = new ArrayList<>();
+        StringBuilder records = new StringBuilder();
+        for (File filePath : missing) {
+            boolean saved;
+            try {
+                saved = savedHistories.containsKey(filePath) ?
+                        savedHistories.get(filePath) != null : savedStore.contains(filePath);
+            } catch (IllegalStateException e) {
+                saved = false;
+            }
+            if (saved && !filePath.exists()) {
+                records.append(HISTORY_REMOVED).append(filePath).append("\n");
+                removed.add(filePath);
             }
+        }
+        if (!removed.isEmpty()) {
+            appendLog(records.toString());
+            logger.log(Level.INFO, "Removed " + removed.size() + " histories of missing files");
+        }
+        return removed;
+    }
 
-            writer.close();
-        } catch (java.io.IOException e) {
+    /**
+     * Compacts the log into the config file in the background, after the writes started
+     * before it, however small the log is.
+     *
+     * @return Future that completes once the config file is rewritten
+     */
+    CompletableFuture<Void> compactAsync() {
+        return CompletableFuture.runAsync(this::compact, configWriter);
+    }
+
+    /**
+     * Appends records to the log and applies them to savedTags and savedHistories. If the log
+     * cannot be written, the config file is rewritten instead.
+     *
+     * @param records Lines of records
+     * @return Whether the records were written
+     */
+    private boolean appendLog(String records) {
+        applyRecords(records);
+        byte[] bytes = records.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            logBytes += bytes.length;
+            return true;
+        } catch (IOException e) {
             logger.log(Level.WARNING, "Error: " + e);
             logger.addHandler(new ConsoleHandler());
+            return compact();
         }
     }
 
     /**
-     * Compile the changes in changes in the format:
-     * <br>imageFile|oldName,newName,time stamp|oldName,newName,time stamp
+     * Writes savedStore with the changes in savedHistories to the HistoryStore and savedTags
+     * to the config file as a new checkpoint, then empties the log.
      *
-     * @param imageFile File path of an Image
-     * @param changes   Array of changes that occurred for the imageFile
-     * @return Formatted changes for imageFile
+     * @return Whether the checkpoint was written
      */
-    private String compileFileLine(File imageFile, ArrayList<String[]> changes) {
-        String dataLine = imageFile + "|"; // Line to write to file
-
-        for (String[] fileChange : changes) {
-            for (int i = 0; i < 3; i++) {
-                dataLine += fileChange[i];
+    private boolean compact() {
+        LinkedHashMap<File, ArrayList<String[]>> histories = new LinkedHashMap<>();
+        try {
+            for (File filePath : savedStore.paths()) {
+                if (!savedHistories.containsKey(filePath)) {
+                    histories.put(filePath, savedStore.get(filePath));
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Keep the log rather than lose the histories that can't be read
+            logger.log(Level.WARNING, "Not compacting: " + e);
+            logger.addHandler(new ConsoleHandler());
+            return false;
+        }
+        for (Map.Entry<File, ArrayList<String[]>> entry : savedHistories.entrySet()) {
+            if (entry.getValue() != null) {
+                histories.put(entry.getKey(), entry.getValue());
+            }
+        }
+        List<Integer> generations = historyStoreGenerations();
+        int generation = generations.isEmpty() ? 0 : generations.get(0) + 1;
+        try {
+            HistoryStore.write(historyStoreFile(generation), histories);
+            savedStore = HistoryStore.open(historyStoreFile(generation));
+            storeGeneration = generation;
+            savedHistories.clear();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+            return false;
+        }
+        if (!writeConfig(String.join(", ", savedTags) + "\n")) {
+            return false;
+        }
+        checkpointBytes = configFile.length() + historyStoreFile(storeGeneration).length();
+        try {
+            Files.deleteIfExists(logFile.toPath());
+            logBytes = 0;
+        } catch (IOException e) {
+            // Replaying the log over the new checkpoint changes nothing
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+        deleteOldHistoryStores();
+        return true;
+    }
 
-                if (i != 2) {
-                    dataLine += ";";
-                } else {
-                    dataLine += "|";
+    /**
+     * Replaces the contents of the config file with data followed by its checksum, through a
+     * temporary file so a crash or a full disk leaves either the old or the new contents. The
+     * old config file becomes the previous one if it is intact.
+     *
+     * @param data Compiled tags
+     * @return Whether the config file was written
+     */
+    private boolean writeConfig(String data) {
+        File temp = new File(configFile.getPath() + ".tmp");
+        try {
+            writeChecked(temp, data);
+            if (configFile.exists()) {
+                try {
+                    readChecked(configFile);
+                    move(configFile, previousConfigFile);
+                } catch (IOException e) {
+                    // Keep the previous config file rather than a corrupt one
+                    logger.log(Level.WARNING, "Replacing corrupt config file: " + e);
+                    logger.addHandler(new ConsoleHandler());
                 }
             }
+            move(temp, configFile);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+            return false;
+        }
+    }
+
+    /**
+     * Writes data followed by a line with its checksum to file, and forces it to the disk.
+     *
+     * @param file File to write
+     * @param data Lines to write
+     * @throws IOException If file cannot be written
+     */
+    static void writeChecked(File file, String data) throws IOException {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        ByteBuffer[] buffers = {ByteBuffer.wrap(bytes), ByteBuffer.wrap((CHECKSUM_PREFIX +
+                Long.toHexString(checksum.getValue()) + "\n").getBytes(StandardCharsets.UTF_8))};
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Return the Directory tree under rootFilePath as it was last saved by writeSnapshot, or
+     * null if there is no usable snapshot of it.
+     *
+     * @param rootFilePath FilePath to the root Directory in the OS's filesystem
+     * @return Saved ScanNode of rootFilePath | null
+     */
+    DirectoryScanner.ScanNode readSnapshot(File rootFilePath) {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try {
+            return ScanSnapshot.read(snapshotFile, rootFilePath);
+        } catch (IOException e) {
+            // Missing, corrupt or of another root, so everything is listed again
+            logger.log(Level.INFO, "Not using scan snapshot: " + e);
+            logger.addHandler(new ConsoleHandler());
+            return null;
         }
+    }
 
-        return dataLine.substring(0, dataLine.length() - 1) + "\n";
+    /**
+     * Saves the loaded Directories under root so the next scan of root only lists the
+     * Directories that changed since.
+     *
+     * @param root Root Directory of the tree
+     */
+    public void writeSnapshot(Directory root) {
+        try {
+            ScanSnapshot.write(snapshotFile, root);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
 
+    /**
+     * Appends the changes in changes to data in the format:
+     * <br>imageFile|oldName;newName;time stamp|oldName;newName;time stamp
+     *
+     * @param data      StringBuilder to append the line to
+     * @param imageFile File path of an Image
+     * @param changes   Array of changes that occurred for the imageFile
+     */
+    private static void appendFileLine(StringBuilder data, File imageFile,
+                                       ArrayList<String[]> changes) {
+        data.append(imageFile);
+        for (String[] fileChange : changes) {
+            data.append('|').append(fileChange[0]).append(';').append(fileChange[1])
+                    .append(';').append(fileChange[2]);
+        }
+        data.append("\n");
     }
 }
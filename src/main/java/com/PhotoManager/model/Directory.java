@@ -4,12 +4,22 @@ import com.PhotoManager.Controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.logging.Level;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.logging.ConsoleHandler;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A collection of actions to be performed on Directories.
@@ -20,28 +30,50 @@ public class Directory {
     private Controller controller;
     private Directory parentDirectory;
 
-    private ArrayList<Image> imageArr;
-    private ArrayList<Directory> directoryArr;
+    /**
+     * Images in this Directory in the order they were found, keyed by their name in the OS's
+     * filesystem.
+     */
+    private LinkedHashMap<String, Image> imageIndex;
+    /**
+     * Sub-Directories of this Directory in the order they were found, keyed by their name.
+     */
+    private LinkedHashMap<String, Directory> directoryIndex;
     /**
      * Images to have their OS path updated.
      */
     private ArrayList<Image> updateQueue;
 
     private File filePath;
+    /**
+     * Normalized absolute path of this Directory.
+     */
+    private Path path;
+    /**
+     * Index of every Directory in this Directory's tree, shared with the rest of the tree.
+     */
+    private DirectoryIndex pathIndex;
+    /**
+     * Whether sub-Directories are listed only when first needed.
+     */
+    private boolean lazy;
+    /**
+     * Whether the contents of this Directory have been listed.
+     */
+    private boolean loaded;
+    /**
+     * Modification time this Directory had when it was listed, or UNKNOWN_MODIFIED.
+     */
+    private long modified = DirectoryScanner.UNKNOWN_MODIFIED;
     private Logger logger = Logger.getLogger(Directory.class.getName());
 
 
     /**
      * Possible file extensions an Image Object can have.
      */
-    private final static HashSet<String> IMAGE_EXTENSIONS = new HashSet<String>() {{
-        add(".gif");
-        add(".png");
-        add(".jpg");
-        add(".bmp");
-        add(".tiff");
-        add(".jpeg");
-    }};
+    private final static String[] IMAGE_EXTENSIONS = {
+            ".gif", ".png", ".jpg", ".bmp", ".tiff", ".jpeg"
+    };
 
     /**
      * Constructs a new Directory at &lt;parentDirectory&gt;.
@@ -58,17 +90,84 @@ public class Directory {
         this.controller = controller;
         setParentDirectory(parentDirectory);
 
-        imageArr = new ArrayList<>();
-        directoryArr = new ArrayList<>();
+        imageIndex = new LinkedHashMap<>();
+        directoryIndex = new LinkedHashMap<>();
         updateQueue = new ArrayList<>();
 
         this.filePath = filePath;
+        joinIndex(parentDirectory == null ? new DirectoryIndex() : parentDirectory.pathIndex);
 
         updateDirectoryChanges();
     }
 
+    /**
+     * Constructs a new Directory at &lt;parentDirectory&gt;. A lazy Directory isn't listed until
+     * its contents are first needed.
+     *
+     * @param controller      Instance of Controller class.
+     * @param parentDirectory Instance of Directory's parent.
+     * @param filePath        FilePath to this Directory in the OS's filesystem.
+     * @param config          ConfigManager holding the cached Image histories.
+     * @param lazy            Whether sub-Directories are only listed when first needed.
+     */
+    Directory(Controller controller, Directory parentDirectory, File filePath,
+              ConfigManager config, boolean lazy) {
+        assert controller != null && filePath != null;
+
+        this.config = config;
+        this.controller = controller;
+        setParentDirectory(parentDirectory);
+
+        imageIndex = new LinkedHashMap<>();
+        directoryIndex = new LinkedHashMap<>();
+        updateQueue = new ArrayList<>();
+
+        this.filePath = filePath;
+        this.lazy = lazy;
+        joinIndex(parentDirectory == null ? new DirectoryIndex() : parentDirectory.pathIndex);
+
+        if (!lazy) {
+            updateDirectoryChanges();
+        }
+    }
+
+    /**
+     * Constructs a new Directory from the already listed contents in &lt;node&gt;.
+     *
+     * @param controller      Instance of Controller class.
+     * @param parentDirectory Instance of Directory's parent.
+     * @param config          ConfigManager holding the cached Image histories.
+     * @param node            Listed contents of this Directory and its sub-Directories.
+     */
+    Directory(Controller controller, Directory parentDirectory, ConfigManager config,
+              DirectoryScanner.ScanNode node) {
+        assert controller != null && node != null;
+
+        this.config = config;
+        this.controller = controller;
+        setParentDirectory(parentDirectory);
+
+        imageIndex = new LinkedHashMap<>();
+        directoryIndex = new LinkedHashMap<>();
+        updateQueue = new ArrayList<>();
+
+        this.filePath = node.file;
+        loaded = true;
+        modified = node.modified;
+        joinIndex(parentDirectory == null ? new DirectoryIndex() : parentDirectory.pathIndex);
+
+        for (DirectoryScanner.ImageEntry imageEntry : node.images) {
+            addNewImage(imageEntry);
+        }
+        for (DirectoryScanner.ScanNode childNode : node.directories) {
+            addDirectory(new Directory(controller, this, config, childNode));
+        }
+    }
+
     /**
      * Constructs a new root Directory from a child Directory.
+     * <br>Only the new root folder is listed: childDirectory keeps its listed sub-tree and the
+     * other sub-Directories wait to be listed until they are first needed.
      *
      * @param controller     Instance of Controller class.
      * @param filePath       FilePath to this Directory in the OS's filesystem.
@@ -81,82 +180,367 @@ public class Directory {
         this.config = config;
         this.controller = controller;
 
-        imageArr = new ArrayList<>();
-        directoryArr = new ArrayList<>();
+        imageIndex = new LinkedHashMap<>();
+        directoryIndex = new LinkedHashMap<>();
         updateQueue = new ArrayList<>();
 
         this.filePath = filePath;
+        joinIndex(childDirectory.pathIndex);
 
         childDirectory.setParentDirectory(this);
-        directoryArr.add(childDirectory);
+        addDirectory(childDirectory);
 
+        lazy = true;
         updateDirectoryChanges();
+        lazy = childDirectory.lazy;
     }
 
     /**
      * Updates this Directory for any changed files/folders
      */
     public void updateDirectoryChanges() {
-        ArrayList<File> directoryFiles;
-        if (getFile().exists()) {
-            directoryFiles = new ArrayList<>(Arrays.asList(getFile().listFiles()));
-        } else {
-            directoryFiles = new ArrayList<>();
+        loaded = true;
+        DirectoryScanner.Listing listing = DirectoryScanner.list(getFile());
+        if (listing == null) {
+            listing = new DirectoryScanner.Listing();
+        }
+        modified = listing.modified;
+        HashSet<String> listedImages = new HashSet<>();
+        for (DirectoryScanner.ImageEntry imageEntry : listing.images) {
+            listedImages.add(imageEntry.file.getName());
+        }
+        HashSet<String> listedDirectories = new HashSet<>();
+        for (File directoryFile : listing.directories) {
+            listedDirectories.add(directoryFile.getName());
         }
-        // Check for images
-        for (Image image : getImages()) {
-            File imageFile = image.getFilePath();
-            if (directoryFiles.contains(imageFile)) {
+
+        // Check for images, matching them by their name in the OS's filesystem so Images with a
+        // pending rename are kept
+        LinkedHashMap<String, Image> oldImages = imageIndex;
+        imageIndex = new LinkedHashMap<>();
+        for (Image image : oldImages.values()) {
+            String imageName = image.getOSFilePath().getName();
+            if (listedImages.remove(imageName)) {
                 // If file still exists
-                directoryFiles.remove(imageFile);
-            } else {
-                // If file doesn't exist anymore
-                directoryFiles.remove(imageFile);
-                imageArr.remove(image);
+                imageIndex.put(imageName, image);
             }
         }
 
         // Check for folders
-        for (Directory directory : getDirectories()) {
-            File directoryFile = directory.getFile();
-            if (directoryFiles.contains(directoryFile)) {
-                // If file still exists
-                directoryFiles.remove(directoryFile);
-            } else {
+        Iterator<Directory> directories = directoryIndex.values().iterator();
+        while (directories.hasNext()) {
+            Directory directory = directories.next();
+            if (!listedDirectories.remove(directory.getDirectoryName())) {
                 // If file doesn't exist anymore
-                directoryFiles.remove(directoryFile);
-                directoryArr.remove(directory);
+                directories.remove();
+                pathIndex.removeTree(directory);
             }
         }
 
-        // Remaining Files in directoryFiles are just files that are not currently added.
-        addImagesAndDirectories(directoryFiles);
+        // Remaining Files are just files that are not currently added.
+        ArrayList<DirectoryScanner.ImageEntry> imageFiles = new ArrayList<>();
+        for (DirectoryScanner.ImageEntry imageEntry : listing.images) {
+            if (listedImages.contains(imageEntry.file.getName())) {
+                imageFiles.add(imageEntry);
+            }
+        }
+        ArrayList<File> directoryFiles = new ArrayList<>();
+        for (File directoryFile : listing.directories) {
+            if (listedDirectories.contains(directoryFile.getName())) {
+                directoryFiles.add(directoryFile);
+            }
+        }
+        addImagesAndDirectories(imageFiles, directoryFiles);
+    }
 
+    /**
+     * Adds all the Images and Directories in imageFiles and directoryFiles into their respective
+     * lists.
+     *
+     * @param imageFiles     Image files to add to this Directory
+     * @param directoryFiles Directories to scan and add to this Directory
+     */
+    private void addImagesAndDirectories(ArrayList<DirectoryScanner.ImageEntry> imageFiles,
+                                         ArrayList<File> directoryFiles) {
+        for (DirectoryScanner.ImageEntry imageEntry : imageFiles) {
+            addNewImage(imageEntry);
+        }
+        for (File filePath : directoryFiles) {
+            if (lazy) {
+                addDirectory(new Directory(controller, this, filePath, config, true));
+                continue;
+            }
+            DirectoryScanner.ScanNode node = DirectoryScanner.listTree(filePath);
+            if (node != null) {
+                Directory newDirectory = new Directory(controller, this, config, node);
+                addDirectory(newDirectory);
+                controller.watchDirectory(newDirectory);
+            }
+        }
     }
 
     /**
-     * Adds all the Images and Directories in files into their respective ObservableLists
+     * Fills this Directory and its sub-Directories with the contents listed in the background
+     * in node. Sub-Directories that were listed in the meantime keep their own, more recent,
+     * contents.
      *
-     * @param files ObservableList&lt;File&gt; of Directories or Images
+     * @param node Contents of this Directory listed after it was added to the tree
      */
-    private void addImagesAndDirectories(ArrayList<File> files) {
-        for (File filePath : files) {
-            if (isFileAnImage(filePath)) {
-                Image newImage = new Image(this, filePath, config.getImageHistory(filePath));
-                imageArr.add(newImage);
-                controller.addInitialTags(newImage);
-            } else if (isFileADirectory(filePath)) {
-                try {
-                    Directory newDirectory = new Directory(controller, this, filePath, config);
-                    directoryArr.add(newDirectory);
-                } catch (NullPointerException e) {
-                    logger.log(Level.WARNING, "No access to: " + filePath);
-                    logger.addHandler(new ConsoleHandler());
+    void fill(DirectoryScanner.ScanNode node) {
+        if (pathIndex.get(path) != this) {
+            // Removed from the tree while it was being listed
+            return;
+        }
+        lazy = false;
+        if (loaded) {
+            for (DirectoryScanner.ScanNode childNode : node.directories) {
+                Directory subDirectory = directoryIndex.get(childNode.file.getName());
+                if (subDirectory != null) {
+                    subDirectory.fill(childNode);
                 }
             }
+            return;
+        }
+
+        loaded = true;
+        modified = node.modified;
+        for (DirectoryScanner.ImageEntry imageEntry : node.images) {
+            addNewImage(imageEntry);
+        }
+        for (DirectoryScanner.ScanNode childNode : node.directories) {
+            addDirectory(new Directory(controller, this, config, childNode));
+        }
+        controller.watchDirectory(this);
+    }
+
+    /**
+     * Makes this Directory list new sub-Directories in full from now on, once everything under
+     * it has been listed.
+     */
+    void setScanned() {
+        lazy = false;
+    }
+
+    /**
+     * Adds the Image or sub-Directory at file to this Directory if it isn't in it already.
+     *
+     * @param file FilePath to a newly created file in this Directory
+     * @return The new sub-Directory if file is a newly added directory | null
+     */
+    Directory entryCreated(File file) {
+        if (!loaded) {
+            // Will be listed when first needed
+            return null;
+        } else if (isFileAnImage(file)) {
+            if (findImage(file) == null) {
+                addNewImage(file);
+            }
+        } else if (isFileADirectory(file) && findDirectory(file) == null) {
+            if (lazy) {
+                Directory newDirectory = new Directory(controller, this, file, config, true);
+                addDirectory(newDirectory);
+                return newDirectory;
+            }
+            DirectoryScanner.ScanNode node = DirectoryScanner.listTree(file);
+            if (node != null) {
+                Directory newDirectory = new Directory(controller, this, config, node);
+                addDirectory(newDirectory);
+                return newDirectory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the Image or sub-Directory at file from this Directory if it was deleted.
+     *
+     * @param file FilePath to a deleted file in this Directory
+     */
+    void entryDeleted(File file) {
+        if (file.exists()) {
+            // Created again since it was deleted
+            return;
+        }
+        Image image = imageIndex.get(file.getName());
+        if (image != null && image.getOSFilePath().equals(file)) {
+            imageIndex.remove(file.getName());
+        }
+        Directory directory = findDirectory(file);
+        if (directory != null) {
+            directoryIndex.remove(file.getName());
+            pathIndex.removeTree(directory);
+        }
+    }
+
+    /**
+     * Applies a move or rename of image, already made in the OS's filesystem, to this Directory
+     * without listing it. Called on both the Directory image left and the one it is in now.
+     * <br>Costs O(1) however many Images this Directory holds.
+     *
+     * @param image  Image whose OS' file path changed
+     * @param source OS' file path image had before the move
+     */
+    void imageMoved(Image image, File source) {
+        if (imageIndex.get(source.getName()) == image) {
+            imageIndex.remove(source.getName());
+        }
+        if (image.getCurrentDirectory() == this) {
+            imageIndex.put(image.getOSFilePath().getName(), image);
+        }
+    }
+
+    /**
+     * Applies the deletion of image, already made in the OS's filesystem, to this Directory
+     * without listing it.
+     *
+     * @param image Image whose file was deleted
+     */
+    void imageDeleted(Image image) {
+        removeImage(image);
+        if (config != null) {
+            config.imageDeleted(image);
+        }
+    }
+
+    /**
+     * Records that the file path or history of image changed, so the ConfigManager saves it.
+     *
+     * @param image Image in this Directory that changed
+     */
+    void imageChanged(Image image) {
+        if (config != null) {
+            config.imageChanged(image);
+        }
+    }
+
+    /**
+     * Return the Image in this Directory whose file path or OS' file path is file.
+     *
+     * @param file FilePath of an Image
+     * @return Image at file | null
+     */
+    private Image findImage(File file) {
+        Image image = imageIndex.get(file.getName());
+        if (image != null && image.getOSFilePath().equals(file)) {
+            return image;
+        }
+        return findPendingImage(file);
+    }
+
+    /**
+     * Return the Image in this Directory waiting to be renamed to file.
+     *
+     * @param file FilePath of an Image
+     * @return Image with file path file | null
+     */
+    private Image findPendingImage(File file) {
+        for (Image image : updateQueue) {
+            if (image.getFilePath().equals(file) && image.getCurrentDirectory() == this) {
+                return image;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the sub-Directory directly in this Directory at file.
+     *
+     * @param file FilePath of a sub-Directory
+     * @return Directory at file | null
+     */
+    private Directory findDirectory(File file) {
+        Directory directory = directoryIndex.get(file.getName());
+        if (directory != null && directory.getFile().equals(file)) {
+            return directory;
+        }
+        return null;
+    }
+
+    /**
+     * Adds directory to the sub-Directories of this Directory.
+     *
+     * @param directory Sub-Directory to add
+     */
+    private void addDirectory(Directory directory) {
+        directoryIndex.put(directory.getDirectoryName(), directory);
+    }
+
+    /**
+     * Creates an Image at filePath, adds it to this Directory and registers its tags.
+     *
+     * @param filePath FilePath to the new Image in the OS's filesystem.
+     * @return The new Image
+     */
+    private Image addNewImage(File filePath) {
+        return addNewImage(filePath, null);
+    }
+
+    /**
+     * Creates an Image at filePath with the tags parsed from its name, adds it to this
+     * Directory and registers its tags.
+     *
+     * @param filePath FilePath to the new Image in the OS's filesystem.
+     * @param nameTags Tags in the name of filePath | null to parse them
+     * @return The new Image
+     */
+    private Image addNewImage(File filePath, String[] nameTags) {
+        Image newImage = new Image(this, filePath, config.getImageHistory(filePath),
+                controller.getTagStore(), nameTags);
+        imageIndex.put(filePath.getName(), newImage);
+        controller.addInitialTags(newImage);
+        return newImage;
+    }
+
+    /**
+     * Creates the listed Image in imageEntry, adds it to this Directory and registers its tags.
+     *
+     * @param imageEntry Listed Image file with its size and modification time
+     */
+    private void addNewImage(DirectoryScanner.ImageEntry imageEntry) {
+        addNewImage(imageEntry.file, imageEntry.tags).setFileStamp(imageEntry.size,
+                imageEntry.modified);
+    }
+
+    /**
+     * Adds this Directory to index, the index of the tree it is part of.
+     *
+     * @param index DirectoryIndex of this Directory's tree
+     */
+    private void joinIndex(DirectoryIndex index) {
+        path = DirectoryIndex.normalize(filePath);
+        pathIndex = index;
+        pathIndex.add(this);
+    }
+
+    /**
+     * Lists the contents of this Directory if they haven't been listed yet.
+     */
+    private void ensureLoaded() {
+        if (!loaded) {
+            updateDirectoryChanges();
+            controller.watchDirectory(this);
         }
     }
 
+    /**
+     * Return whether the contents of this Directory have been listed.
+     *
+     * @return true if this Directory is loaded and false if it is waiting to be listed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Return the modification time this Directory had when it was last listed, or
+     * UNKNOWN_MODIFIED if its listing may not be current.
+     *
+     * @return Modification time of this Directory in milliseconds
+     */
+    long getModified() {
+        return modified;
+    }
+
     /**
      * Return the file path of this Directory.
      *
@@ -166,6 +550,15 @@ public class Directory {
         return filePath;
     }
 
+    /**
+     * Return the normalized absolute path of this Directory.
+     *
+     * @return Normalized Path of this Directory
+     */
+    public Path getPath() {
+        return path;
+    }
+
     /**
      * Get the Name of this Directory
      *
@@ -200,12 +593,13 @@ public class Directory {
      * @return Image at filePath | null
      */
     public Image getImage(File filePath) {
-        if (isFileAnImage(filePath)) {
-            for (Image img : imageArr) {
-                if (img.getFilePath().equals(filePath)) {
-                    return img;
-                }
+        ensureLoaded();
+        if (hasImageExtension(filePath.getName())) {
+            Image image = imageIndex.get(filePath.getName());
+            if (image != null && image.getFilePath().equals(filePath)) {
+                return image;
             }
+            return findPendingImage(filePath);
         }
         return null;
     }
@@ -216,7 +610,8 @@ public class Directory {
      * @return ObservableList&lt;Image&gt; of all Images in this Directory.
      */
     public ArrayList<Image> getImages() {
-        return new ArrayList<>(imageArr);
+        ensureLoaded();
+        return new ArrayList<>(imageIndex.values());
     }
 
     /**
@@ -225,49 +620,112 @@ public class Directory {
      * @return ObservableList&lt;Image&gt; of all Images in this Directory and its sub-Directories
      */
     public ArrayList<Image> getImagesInSubDirectories() {
-        ArrayList<Image> temp = getImages();
-        for (Directory subDirectory : directoryArr) {
-            // Gets all images in this and any trees extending from this tree
-            temp.addAll(subDirectory.getImagesInSubDirectories());
-        }
-        return temp;
+        return streamImagesInSubDirectories().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Return all Images in this Directory and its sub-Directories that have been listed so far,
+     * without listing any lazy Directory.
+     *
+     * @return ArrayList&lt;Image&gt; of all loaded Images under this Directory
+     */
+    public ArrayList<Image> getLoadedImagesInSubDirectories() {
+        return streamLoadedImagesInSubDirectories()
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Return a Stream of all Images in this Directory and its sub-Directories, in the same order
+     * as getImagesInSubDirectories, without copying the Images of any Directory.
+     * <br>Lazy Directories are listed as the Stream reaches them, so the Stream of a lazy tree
+     * is only traversed on one thread even if it is made parallel. The tree must not be changed
+     * while the Stream is being traversed.
+     *
+     * @return Stream&lt;Image&gt; of all Images under this Directory
+     */
+    public Stream<Image> streamImagesInSubDirectories() {
+        return StreamSupport.stream(new SubtreeSpliterator(this, true), false);
     }
 
     /**
-     * Return Directory at filePath if it exists.
+     * Return a Stream of all Images in this Directory and its sub-Directories that have been
+     * listed so far, without listing any lazy Directory or copying the Images of any Directory.
+     * <br>A parallel Stream is split between sub-Directories. The tree must not be changed
+     * while the Stream is being traversed.
+     *
+     * @return Stream&lt;Image&gt; of all loaded Images under this Directory
+     */
+    public Stream<Image> streamLoadedImagesInSubDirectories() {
+        return StreamSupport.stream(new SubtreeSpliterator(this, false), false);
+    }
+
+    /**
+     * Return Directory at filePath if it exists at or below this Directory. If filePath is an
+     * Image, return the Directory the Image is in.
+     * <br>Directories already in the tree are found with a single lookup. Otherwise the path is
+     * followed down from its closest known parent, listing a Directory again only when a
+     * sub-Directory is missing from it.
      *
      * @param filePath filePath of a Directory.
      * @return Directory at filePath | null
      */
     public Directory getDirectory(File filePath) {
+        ensureLoaded();
         if (isFileAnImage(filePath)) {
             filePath = filePath.getParentFile();
         }
 
-        if (isFileADirectory(filePath)) {
-            // If a Directory
-            if (getFile().equals(filePath)) {
-                // If root path
-                return this;
-            } else {
-                // If a sub-Directory
-                String tempPath = filePath.getPath();
-
-                for (Directory dir : directoryArr) {
-                    // Go through all directories in this directory
-                    if (tempPath.contains(dir.getFile().getAbsolutePath())) {
-                        // If this directory is part of filePath's file path then recurse
-                        return dir.getDirectory(filePath);
-                    }
-                }
-                // Directory exists but isn't recorded in this Directory so update the records in
-                // this Directory
-                updateDirectoryChanges();
-                // Hit that replay
-                getDirectory(filePath);
+        Path targetPath = DirectoryIndex.normalize(filePath);
+        if (!targetPath.startsWith(path)) {
+            // Not under this Directory
+            return null;
+        }
+        Directory target = pathIndex.get(targetPath);
+        if (target != null) {
+            return target;
+        }
+        if (!isFileADirectory(filePath)) {
+            return null;
+        }
+
+        // Start from the closest parent in the tree
+        Directory current = this;
+        Path ancestorPath = targetPath.getParent();
+        while (ancestorPath != null && !ancestorPath.equals(path)) {
+            Directory ancestor = pathIndex.get(ancestorPath);
+            if (ancestor != null) {
+                current = ancestor;
+                break;
             }
+            ancestorPath = ancestorPath.getParent();
         }
-        return null;
+
+        for (Path name : current.path.relativize(targetPath)) {
+            current = current.getSubDirectory(name.toString());
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Return the sub-Directory directly in this Directory called directoryName, listing this
+     * Directory again if it isn't recorded yet.
+     *
+     * @param directoryName Name of a sub-Directory
+     * @return Sub-Directory called directoryName | null
+     */
+    private Directory getSubDirectory(String directoryName) {
+        ensureLoaded();
+        Directory subDirectory = directoryIndex.get(directoryName);
+        if (subDirectory == null) {
+            // Directory exists but isn't recorded in this Directory so update the records in
+            // this Directory
+            updateDirectoryChanges();
+            subDirectory = directoryIndex.get(directoryName);
+        }
+        return subDirectory;
     }
 
     /**
@@ -276,7 +734,18 @@ public class Directory {
      * @return ObservableList&lt;Directory&gt; of all directories under this Directory
      */
     public ArrayList<Directory> getDirectories() {
-        return new ArrayList<>(directoryArr);
+        ensureLoaded();
+        return new ArrayList<>(directoryIndex.values());
+    }
+
+    /**
+     * Return the sub-Directories of this Directory that have been listed so far, without listing
+     * this Directory.
+     *
+     * @return ArrayList&lt;Directory&gt; of the known sub-Directories of this Directory
+     */
+    ArrayList<Directory> getLoadedDirectories() {
+        return new ArrayList<>(directoryIndex.values());
     }
 
     /**
@@ -285,8 +754,8 @@ public class Directory {
      * @param filePath filePath to questioned Directory
      * @return true if filePath is a Directory and false if filePath is not a Directory
      */
-    private boolean isFileADirectory(File filePath) {
-        return filePath.exists() && !filePath.isFile();
+    static boolean isFileADirectory(File filePath) {
+        return filePath.isDirectory();
     }
 
     /**
@@ -295,13 +764,30 @@ public class Directory {
      * @param filePath filePath to questioned Image
      * @return true if filePath is a Image and false if filePath is not a Image
      */
-    private boolean isFileAnImage(File filePath) {
-        return filePath.exists() && filePath.isFile() &&
-                filePath.getAbsolutePath().contains(".") &&
-                IMAGE_EXTENSIONS.contains(
-                        filePath.getAbsolutePath().substring(
-                                filePath.getAbsolutePath().lastIndexOf(".")
-                        ).toLowerCase());
+    static boolean isFileAnImage(File filePath) {
+        return hasImageExtension(filePath.getName()) && filePath.isFile();
+    }
+
+    /**
+     * Returns whether or not fileName ends with one of the IMAGE_EXTENSIONS, ignoring case and
+     * without creating any new Strings.
+     *
+     * @param fileName Name of a file
+     * @return true if fileName has an Image extension and false otherwise
+     */
+    static boolean hasImageExtension(String fileName) {
+        int extensionStart = fileName.lastIndexOf('.');
+        if (extensionStart == -1) {
+            return false;
+        }
+        int extensionLength = fileName.length() - extensionStart;
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (extension.length() == extensionLength &&
+                    fileName.regionMatches(true, extensionStart, extension, 0, extensionLength)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -310,7 +796,37 @@ public class Directory {
      * @param image Image to be added to this Directory
      */
     public void addImage(Image image) {
-        imageArr.add(image);
+        imageIndex.put(image.getOSFilePath().getName(), image);
+    }
+
+    /**
+     * Moves images into this Directory in memory, taking each out of the Directory it is in.
+     * Their files are moved by the next batch of renames. The caller checks first that their
+     * names are free here.
+     *
+     * @param images Images in other Directories to move here
+     */
+    public void moveImagesHere(Collection<Image> images) {
+        ensureLoaded();
+        for (Image image : images) {
+            image.getCurrentDirectory().removeImage(image);
+            image.setFilePath(new File(filePath, image.getImageName()), this);
+            addImage(image);
+        }
+    }
+
+    /**
+     * Removes image from this Directory.
+     *
+     * @param image Image to be removed from this Directory
+     */
+    private void removeImage(Image image) {
+        String imageName = image.getOSFilePath().getName();
+        if (imageIndex.get(imageName) == image) {
+            imageIndex.remove(imageName);
+        } else {
+            imageIndex.values().remove(image);
+        }
     }
 
     /**
@@ -319,11 +835,12 @@ public class Directory {
      * @param file filePath to the file you want removed from this Directory
      */
     public void removeFile(File file) {
-        if (isFileAnImage(file)) {
-            imageArr.remove(getImage(file));
-        } else if (isFileADirectory(file)) {
+        Image image = getImage(file);
+        if (image != null) {
+            removeImage(image);
+        } else if (findDirectory(file) != null) {
             // Is a directory
-            directoryArr.remove(getDirectory(file));
+            pathIndex.removeTree(directoryIndex.remove(file.getName()));
         }
     }
 
@@ -334,25 +851,35 @@ public class Directory {
      */
     void addToUpdateQueue(Image image) {
         updateQueue.add(image);
+        imageChanged(image);
     }
 
     /**
-     * Updates all the images in the updateQueue's file paths in the OS' filesystem.
+     * Return the Images in the updateQueue in the order they were added.
+     *
+     * @return Copy of the Images to have their OS path updated
      */
-    private void updateImagesOSPath() {
-        for (Image image : updateQueue) {
-            image.updateOSPath();
-        }
+    ArrayList<Image> getUpdateQueue() {
+        return new ArrayList<>(updateQueue);
+    }
 
-        updateQueue.clear();
+    /**
+     * Removes the Images whose OS path has been updated from the updateQueue.
+     *
+     * @param updated Images that are at their file path in the OS's filesystem
+     */
+    void removeFromUpdateQueue(Set<Image> updated) {
+        updateQueue.removeIf(updated::contains);
     }
 
     /**
      * Updates all images file paths in the OS' filesystem in every sub-directory's updateQueues.
+     *
+     * @param renamer RenameExecutor that renames the Images
+     * @return BatchResult of the renames
      */
-    public void updateImagesOSPathAll() {
-        updateImagesOSPath();
-        for (Directory subDirectory : directoryArr) subDirectory.updateImagesOSPathAll();
+    public RenameExecutor.BatchResult updateImagesOSPathAll(RenameExecutor renamer) {
+        return renamer.flush(this);
     }
 
     /**
@@ -369,4 +896,134 @@ public class Directory {
                     getFile().getCanonicalPath()});
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Walks the Images of a Directory tree in pre-order straight from each Directory's index.
+     * <br>The Directories still to be visited are kept as a stack of iterators over siblings,
+     * deepest first. Splitting hands the current Directory's remaining contents, which come
+     * first, to the new Spliterator and keeps the remaining siblings at the top of the stack.
+     */
+    private static class SubtreeSpliterator implements Spliterator<Image> {
+        private final boolean load;
+        private final boolean splittable;
+        private Iterator<Image> images;
+        private ArrayDeque<Iterator<Directory>> pending = new ArrayDeque<>();
+
+        /**
+         * Constructs a Spliterator over the Images under root.
+         *
+         * @param root Directory at the top of the tree
+         * @param load Whether Directories that haven't been listed are listed when reached
+         */
+        SubtreeSpliterator(Directory root, boolean load) {
+            this.load = load;
+            // Listing is not thread safe, so a tree that can still load is walked on one thread
+            splittable = !load || !root.lazy;
+            pending.push(Collections.singletonList(root).iterator());
+        }
+
+        private SubtreeSpliterator(boolean load, Iterator<Image> images,
+                                   ArrayDeque<Iterator<Directory>> pending) {
+            this.load = load;
+            this.splittable = true;
+            this.images = images;
+            this.pending = pending;
+        }
+
+        /**
+         * Makes the next Directory in pre-order the current one.
+         *
+         * @return false if there are no Directories left
+         */
+        private boolean nextDirectory() {
+            while (!pending.isEmpty()) {
+                Iterator<Directory> siblings = pending.peek();
+                if (!siblings.hasNext()) {
+                    pending.pop();
+                    continue;
+                }
+                Directory directory = siblings.next();
+                if (load) {
+                    directory.ensureLoaded();
+                }
+                images = directory.imageIndex.values().iterator();
+                pending.push(directory.directoryIndex.values().iterator());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Image> action) {
+            while (images == null || !images.hasNext()) {
+                if (!nextDirectory()) {
+                    return false;
+                }
+            }
+            action.accept(images.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Image> action) {
+            do {
+                if (images != null) {
+                    images.forEachRemaining(action);
+                }
+            } while (nextDirectory());
+        }
+
+        @Override
+        public Spliterator<Image> trySplit() {
+            if (!splittable) {
+                return null;
+            }
+            while (!pending.isEmpty()) {
+                Iterator<Directory> topSiblings = pending.peekLast();
+                if (!topSiblings.hasNext()) {
+                    // Nothing left after the deeper Directories
+                    pending.removeLast();
+                    continue;
+                }
+                if (pending.size() > 1 || (images != null && images.hasNext())) {
+                    // Hand over everything before the remaining top level siblings
+                    ArrayDeque<Iterator<Directory>> prefix = pending;
+                    prefix.removeLast();
+                    SubtreeSpliterator split = new SubtreeSpliterator(load, images, prefix);
+                    images = null;
+                    pending = new ArrayDeque<>();
+                    pending.push(topSiblings);
+                    return split;
+                }
+
+                // Only siblings are left, so hand over the first half of them
+                List<Directory> siblings = new ArrayList<>();
+                topSiblings.forEachRemaining(siblings::add);
+                pending.clear();
+                if (siblings.size() > 1) {
+                    int half = siblings.size() / 2;
+                    ArrayDeque<Iterator<Directory>> prefix = new ArrayDeque<>();
+                    prefix.push(siblings.subList(0, half).iterator());
+                    pending.push(siblings.subList(half, siblings.size()).iterator());
+                    return new SubtreeSpliterator(load, null, prefix);
+                }
+                pending.push(siblings.iterator());
+                // A single Directory is split between its own contents
+                if (!nextDirectory()) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
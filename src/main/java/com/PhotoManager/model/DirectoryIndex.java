@@ -0,0 +1,65 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from the normalized path of every Directory in a tree to its Directory, shared by all
+ * Directories of that tree.
+ */
+class DirectoryIndex {
+
+    private Map<Path, Directory> directories = new ConcurrentHashMap<>();
+
+    /**
+     * Return the absolute, normalized form of file used as key of the index.
+     *
+     * @param file FilePath in the OS's filesystem
+     * @return Normalized Path of file
+     */
+    static Path normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Return the Directory at path if it's in the tree.
+     *
+     * @param path Normalized path of a Directory
+     * @return Directory at path | null
+     */
+    Directory get(Path path) {
+        return directories.get(path);
+    }
+
+    /**
+     * Adds directory to the index.
+     *
+     * @param directory Directory that was added to the tree
+     */
+    void add(Directory directory) {
+        directories.put(directory.getPath(), directory);
+    }
+
+    /**
+     * Removes directory and all of its loaded sub-Directories from the index.
+     *
+     * @param directory Directory that was removed from the tree
+     */
+    void removeTree(Directory directory) {
+        directories.remove(directory.getPath(), directory);
+        for (Directory subDirectory : directory.getLoadedDirectories()) {
+            removeTree(subDirectory);
+        }
+    }
+
+    /**
+     * Return the number of Directories in the index.
+     *
+     * @return Number of indexed Directories
+     */
+    int size() {
+        return directories.size();
+    }
+}
@@ -0,0 +1,387 @@
+package com.PhotoManager.model;
+
+import com.PhotoManager.Controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds Directory trees by listing sibling sub-directories in parallel on a work-stealing
+ * ForkJoinPool, then assembling the Directory and Image objects on the calling thread.
+ */
+public class DirectoryScanner {
+
+    /**
+     * Modification time of a directory whose listing cannot be trusted to be current.
+     */
+    static final long UNKNOWN_MODIFIED = -1;
+
+    /**
+     * A directory modified this close to when it was listed may have changed again within the
+     * same tick of the OS's filesystem clock, so its modification time isn't kept.
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    private ForkJoinPool pool;
+    private boolean lazy;
+    private static Logger logger = Logger.getLogger(DirectoryScanner.class.getName());
+
+    /**
+     * Constructs a DirectoryScanner that uses one thread per available processor.
+     */
+    public DirectoryScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a DirectoryScanner that lists at most &lt;parallelism&gt; directories at once.
+     *
+     * @param parallelism Number of threads used to list directories
+     */
+    public DirectoryScanner(int parallelism) {
+        this(parallelism, false);
+    }
+
+    /**
+     * Constructs a DirectoryScanner that lists at most &lt;parallelism&gt; directories at once.
+     * <br>A lazy DirectoryScanner only records the sub-directories of each Directory and lists
+     * them when they are first needed, so opening any root costs a single listing. Tags of
+     * Images in folders that haven't been opened yet are not known until they are listed.
+     *
+     * @param parallelism Number of threads used to list directories
+     * @param lazy        Whether sub-directories are only listed when first needed
+     */
+    public DirectoryScanner(int parallelism, boolean lazy) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        pool = new ForkJoinPool(parallelism);
+        this.lazy = lazy;
+    }
+
+    /**
+     * Return the number of threads used to list directories.
+     *
+     * @return Parallelism of this DirectoryScanner
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Return whether sub-directories are only listed when first needed.
+     *
+     * @return true if this DirectoryScanner is lazy
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Return a new root Directory at rootFilePath containing every Image and sub-Directory
+     * underneath it. A lazy root is listed when its contents are first needed.
+     * <br>If config holds a scan snapshot of rootFilePath, only the directories modified since
+     * the snapshot was saved are listed again.
+     *
+     * @param controller   Instance of Controller class.
+     * @param rootFilePath FilePath to the root Directory in the OS's filesystem.
+     * @param config       ConfigManager holding the cached Image histories.
+     * @return Root Directory of the scanned tree
+     */
+    public Directory scan(Controller controller, File rootFilePath, ConfigManager config) {
+        if (lazy) {
+            return new Directory(controller, null, rootFilePath, config, true);
+        }
+        return scan(controller, rootFilePath, config, config.readSnapshot(rootFilePath));
+    }
+
+    /**
+     * Return a new root Directory at rootFilePath, reusing the listing of every directory in
+     * snapshot that hasn't been modified since it was listed.
+     *
+     * @param controller   Instance of Controller class.
+     * @param rootFilePath FilePath to the root Directory in the OS's filesystem.
+     * @param config       ConfigManager holding the cached Image histories.
+     * @param snapshot     Saved ScanNode of rootFilePath | null to list every directory
+     * @return Root Directory of the scanned tree
+     */
+    Directory scan(Controller controller, File rootFilePath, ConfigManager config,
+                   ScanNode snapshot) {
+        ScanNode rootNode = pool.invoke(new ListingTask(rootFilePath, snapshot, null));
+        if (rootNode == null) {
+            // Unreadable root, show it as an empty Directory
+            rootNode = new ScanNode(rootFilePath);
+        }
+        return new Directory(controller, null, config, rootNode);
+    }
+
+    /**
+     * Return a ScanTask that lists every Directory under root that hasn't been listed yet on
+     * this DirectoryScanner's threads, and fills them in through modelExecutor. Must be called
+     * on the thread which owns the tree.
+     * <br>Used with a lazy DirectoryScanner, the root can be shown as soon as it is listed while
+     * the rest of the tree is scanned.
+     *
+     * @param root          Root Directory of the tree
+     * @param config        ConfigManager holding the scan snapshot
+     * @param modelExecutor Executor that runs on the thread which owns the tree
+     * @return ScanTask that hasn't been started
+     */
+    public ScanTask scanInBackground(Directory root, ConfigManager config,
+                                     Executor modelExecutor) {
+        return new ScanTask(pool, root, config, modelExecutor);
+    }
+
+    /**
+     * Stops the threads of this DirectoryScanner once all running scans finish.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Return the Images and sub-directories directly inside directory, reading the attributes of
+     * each entry exactly once, or null if directory cannot be read. A missing directory is
+     * listed as empty.
+     * <br>The modification time of directory is read before it is listed, so any later change
+     * to its entries gives it a newer one.
+     *
+     * @param directory FilePath to a directory in the OS's filesystem.
+     * @return Listing of directory | null
+     */
+    static Listing list(File directory) {
+        return list(directory.toPath());
+    }
+
+    /**
+     * Return the Images and sub-directories directly inside directory as list(File) does, for a
+     * directory of any filesystem whose paths convert to Files.
+     *
+     * @param directory Path to a directory
+     * @return Listing of directory | null
+     */
+    static Listing list(Path directory) {
+        Listing listing = new Listing();
+        try {
+            long listed = System.currentTimeMillis();
+            long modified = Files.getLastModifiedTime(directory).toMillis();
+            if (modified < listed - RACY_MILLIS) {
+                listing.modified = modified;
+            }
+        } catch (NoSuchFileException e) {
+            return listing;
+        } catch (IOException e) {
+            // Listed below, but never trusted by a snapshot
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes;
+                try {
+                    // On Windows the attributes are cached by the directory stream itself
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Removed since listing or a broken link
+                    continue;
+                }
+                if (attributes.isRegularFile()) {
+                    if (Directory.hasImageExtension(entry.getFileName().toString())) {
+                        listing.images.add(new ImageEntry(entry.toFile(), attributes.size(),
+                                attributes.lastModifiedTime().toMillis()));
+                    }
+                } else if (attributes.isDirectory()) {
+                    listing.directories.add(entry.toFile());
+                }
+            }
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            return listing;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "No access to: " + directory);
+            logger.addHandler(new ConsoleHandler());
+            return null;
+        }
+        return listing;
+    }
+
+    /**
+     * Return the listed contents of directory and all of its sub-directories on the calling
+     * thread, or null if directory cannot be read.
+     *
+     * @param directory FilePath to a directory in the OS's filesystem.
+     * @return ScanNode of directory | null
+     */
+    static ScanNode listTree(File directory) {
+        Listing listing = list(directory);
+        if (listing == null) {
+            return null;
+        }
+        ScanNode node = new ScanNode(directory, listing);
+        for (File subDirectory : listing.directories) {
+            ScanNode child = listTree(subDirectory);
+            if (child != null) {
+                node.directories.add(child);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * An Image file with the size and modification time it was listed with, and the tags in
+     * its name parsed on the listing thread.
+     */
+    static class ImageEntry {
+        final File file;
+        final long size;
+        final long modified;
+        final String[] tags;
+
+        ImageEntry(File file, long size, long modified) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+            this.tags = TagNameCodec.parseTags(file.getName());
+        }
+    }
+
+    /**
+     * The Images and sub-directories directly inside one directory, in listing order.
+     */
+    static class Listing {
+        long modified = UNKNOWN_MODIFIED;
+        final List<ImageEntry> images = new ArrayList<>();
+        final List<File> directories = new ArrayList<>();
+    }
+
+    /**
+     * The listed contents of one directory and its sub-directories.
+     */
+    static class ScanNode {
+        final File file;
+        long modified = UNKNOWN_MODIFIED;
+        final List<ImageEntry> images = new ArrayList<>();
+        final List<ScanNode> directories = new ArrayList<>();
+
+        ScanNode(File file) {
+            this.file = file;
+        }
+
+        ScanNode(File file, Listing listing) {
+            this.file = file;
+            modified = listing.modified;
+            images.addAll(listing.images);
+        }
+    }
+
+    /**
+     * Lists one directory and forks a ListingTask for each of its sub-directories. A directory
+     * that hasn't been modified since its snapshot was taken isn't listed again.
+     */
+    static class ListingTask extends RecursiveTask<ScanNode> {
+        private static final long serialVersionUID = 1L;
+
+        private final File directory;
+        private final ScanNode snapshot;
+        private final ScanTask scan;
+
+        /**
+         * Constructs a ListingTask for directory.
+         *
+         * @param directory FilePath to a directory in the OS's filesystem.
+         * @param snapshot  Saved ScanNode of directory | null
+         * @param scan      ScanTask to report progress to and stop with | null
+         */
+        ListingTask(File directory, ScanNode snapshot, ScanTask scan) {
+            this.directory = directory;
+            this.snapshot = snapshot;
+            this.scan = scan;
+        }
+
+        @Override
+        protected ScanNode compute() {
+            if (scan != null && scan.isCancelled()) {
+                return null;
+            }
+            if (snapshot != null && snapshot.modified != UNKNOWN_MODIFIED && isUnchanged()) {
+                ScanNode node = new ScanNode(directory);
+                node.modified = snapshot.modified;
+                node.images.addAll(snapshot.images);
+                visited(node);
+                List<ListingTask> subTasks = new ArrayList<>();
+                for (ScanNode childSnapshot : snapshot.directories) {
+                    subTasks.add(new ListingTask(childSnapshot.file, childSnapshot, scan));
+                }
+                return join(node, subTasks);
+            }
+
+            Listing listing = list(directory);
+            if (listing == null) {
+                return null;
+            }
+
+            ScanNode node = new ScanNode(directory, listing);
+            visited(node);
+            HashMap<String, ScanNode> childSnapshots = new HashMap<>();
+            if (snapshot != null) {
+                for (ScanNode childSnapshot : snapshot.directories) {
+                    childSnapshots.put(childSnapshot.file.getName(), childSnapshot);
+                }
+            }
+            List<ListingTask> subTasks = new ArrayList<>();
+            for (File subDirectory : listing.directories) {
+                // Folders that are still there may not have changed themselves
+                subTasks.add(new ListingTask(subDirectory,
+                        childSnapshots.get(subDirectory.getName()), scan));
+            }
+            return join(node, subTasks);
+        }
+
+        /**
+         * Reports the listed node to the ScanTask this listing is part of.
+         */
+        private void visited(ScanNode node) {
+            if (scan != null) {
+                scan.folderVisited(node.images.size());
+            }
+        }
+
+        /**
+         * Return whether directory has the modification time recorded in its snapshot.
+         */
+        private boolean isUnchanged() {
+            try {
+                return Files.getLastModifiedTime(directory.toPath()).toMillis() ==
+                        snapshot.modified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Runs subTasks and adds their results to node as its sub-directories.
+         */
+        private ScanNode join(ScanNode node, List<ListingTask> subTasks) {
+            invokeAll(subTasks);
+            for (ListingTask subTask : subTasks) {
+                ScanNode child = subTask.join();
+                if (child != null) {
+                    node.directories.add(child);
+                }
+            }
+            return node;
+        }
+    }
+}
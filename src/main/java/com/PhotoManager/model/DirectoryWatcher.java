@@ -0,0 +1,158 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps loaded Directories up to date with changes made to the OS's filesystem, without
+ * relisting them.
+ * <br>Events are received on a background thread and applied to the Directory tree through
+ * the Executor given on construction, so the tree is only ever changed by one thread.
+ */
+public class DirectoryWatcher {
+
+    private WatchService watchService;
+    private Executor modelExecutor;
+    private Map<WatchKey, Directory> watchedKeys = new ConcurrentHashMap<>();
+    private Map<Directory, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+    private Thread watchThread;
+    private Logger logger = Logger.getLogger(DirectoryWatcher.class.getName());
+
+    /**
+     * Constructs a DirectoryWatcher that applies changes through modelExecutor.
+     *
+     * @param modelExecutor Executor that runs on the thread which owns the Directory tree
+     * @throws IOException If the OS's filesystem cannot be watched
+     */
+    public DirectoryWatcher(Executor modelExecutor) throws IOException {
+        this.modelExecutor = modelExecutor;
+        watchService = FileSystems.getDefault().newWatchService();
+
+        watchThread = new Thread(this::processEvents, "directory-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Starts watching directory and all of its loaded sub-Directories.
+     *
+     * @param directory Directory to watch
+     */
+    public void watchTree(Directory directory) {
+        watch(directory);
+        for (Directory subDirectory : directory.getLoadedDirectories()) {
+            watchTree(subDirectory);
+        }
+    }
+
+    /**
+     * Starts watching directory if it is loaded and isn't watched already. A lazy Directory is
+     * watched once it is listed.
+     *
+     * @param directory Directory to watch
+     */
+    public void watch(Directory directory) {
+        if (!directory.isLoaded() || watchedDirectories.containsKey(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = directory.getFile().toPath().register(watchService, ENTRY_CREATE,
+                    ENTRY_DELETE, ENTRY_MODIFY);
+            watchedKeys.put(key, directory);
+            watchedDirectories.put(directory, key);
+        } catch (ClosedWatchServiceException e) {
+            // Watcher already closed
+        } catch (IOException e) {
+            // Missing folder or the OS's limit of watches has been reached
+            logger.log(Level.WARNING, "Cannot watch: " + directory.getFile() + " " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Stops watching the file system.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e.toString());
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Waits for events and hands them to modelExecutor until this watcher is closed.
+     */
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Directory directory = watchedKeys.get(key);
+            List<WatchEvent<?>> events = key.pollEvents();
+            if (!key.reset()) {
+                // Folder was deleted or became inaccessible
+                watchedKeys.remove(key);
+                if (directory != null) {
+                    watchedDirectories.remove(directory);
+                }
+            }
+            if (directory != null && !events.isEmpty()) {
+                modelExecutor.execute(() -> applyEvents(directory, events));
+            }
+        }
+    }
+
+    /**
+     * Applies events reported for directory to the Directory tree.
+     *
+     * @param directory Directory the events happened in
+     * @param events    Events reported for directory
+     */
+    private void applyEvents(Directory directory, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost, so rescan only the folder they were lost for
+                directory.updateDirectoryChanges();
+                watchTree(directory);
+                return;
+            }
+        }
+
+        for (WatchEvent<?> event : events) {
+            File file = directory.getFile().toPath().resolve((Path) event.context()).toFile();
+            if (event.kind() == ENTRY_DELETE) {
+                directory.entryDeleted(file);
+            } else {
+                // A modified file is only added if an earlier create was missed
+                Directory newDirectory = directory.entryCreated(file);
+                if (newDirectory != null) {
+                    watchTree(newDirectory);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Keeps the tags of an Image at the end of its name, as in "Tim @family @beach.jpg".
+ * <br>Tags are changed by renaming the Image, so there is nothing to write. Names are parsed
+ * and formatted by TagNameCodec.
+ */
+public class FilenameTagStore implements TagStore {
+
+    public static final String NAME = "filename";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isInName() {
+        return true;
+    }
+
+    @Override
+    public Set<String> readTags(File file) {
+        Set<String> tags = new LinkedHashSet<>();
+        TagNameCodec.parseTags(file.getName(), tags);
+        return tags;
+    }
+
+    @Override
+    public void writeTags(File file, Set<String> tags) {
+        // Already in the name
+    }
+
+    @Override
+    public void removeTags(File file) {
+        // Removed with the name
+    }
+}
@@ -0,0 +1,439 @@
+package com.PhotoManager.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Image histories in a compact binary file that is read through a MappedByteBuffer, so
+ * opening it reads nothing but its header and a history is only decoded when it is asked for.
+ * <br>Every String is kept once, length-prefixed in UTF-8, in a table of names that records
+ * refer to by index: the old and new names of each history entry and the folder and name of
+ * each Image's file path. Time stamps in the format Controller logs them in are kept as epoch
+ * seconds, read as UTC so they decode the same in every time zone. Records are found through
+ * a hash table of file paths at the start of the file.
+ * <br>The file is laid out as:
+ * <br>header: magic, version, name count, record count, slot count
+ * <br>name offsets: one int per name
+ * <br>slots: one int per slot, the offset of a record | -1
+ * <br>names: int byte length, UTF-8 bytes
+ * <br>records: int folder name | -1, int file name, int entry count, then per entry int old
+ * name, int new name, long time stamp and, if the time stamp is NO_TIME, int time name
+ * <br>A HistoryStore may be read from several threads at once.
+ */
+public final class HistoryStore {
+
+    private static final int MAGIC = 0x504d4853;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * 4;
+    /**
+     * Time stamp of an entry whose time isn't in the format Controller logs, which is kept as
+     * a name instead.
+     */
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
+            "Aug", "Sept", "Oct", "Nov", "Dec"};
+    private static final HistoryStore EMPTY = new HistoryStore(null, 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final int nameCount;
+    private final int recordCount;
+    private final int slotCount;
+
+    private HistoryStore(ByteBuffer buffer, int nameCount, int recordCount, int slotCount) {
+        this.buffer = buffer;
+        this.nameCount = nameCount;
+        this.recordCount = recordCount;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Return a HistoryStore with no histories.
+     *
+     * @return Empty HistoryStore
+     */
+    public static HistoryStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps the histories in file, reading only its header.
+     *
+     * @param file File written by write
+     * @return HistoryStore reading file
+     * @throws IOException If file cannot be read or isn't a history store
+     */
+    public static HistoryStore open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a history store: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a history store: " + file);
+        }
+        int nameCount = buffer.getInt(8);
+        int recordCount = buffer.getInt(12);
+        int slotCount = buffer.getInt(16);
+        if (nameCount < 0 || recordCount < 0 || slotCount < 0 || (slotCount & (slotCount - 1))
+                != 0 || HEADER_BYTES + 4L * (nameCount + slotCount) > buffer.capacity()) {
+            throw new IOException("Corrupt history store: " + file);
+        }
+        return new HistoryStore(buffer, nameCount, recordCount, slotCount);
+    }
+
+    /**
+     * Return the number of histories in this HistoryStore.
+     *
+     * @return Number of file paths with a history
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Return the history of the Image at filePath, decoded from the file.
+     *
+     * @param filePath File path of an Image
+     * @return History of the Image | null if it has none
+     * @throws IllegalStateException If the record of filePath is corrupt
+     */
+    public ArrayList<String[]> get(File filePath) {
+        try {
+            int record = find(filePath);
+            if (record == -1) {
+                return null;
+            }
+            int count = buffer.getInt(record + 8);
+            ArrayList<String[]> history = new ArrayList<>(count);
+            int offset = record + 12;
+            for (int i = 0; i < count; i++) {
+                String oldName = name(buffer.getInt(offset));
+                String newName = name(buffer.getInt(offset + 4));
+                long time = buffer.getLong(offset + 8);
+                offset += 16;
+                String timeStamp;
+                if (time == NO_TIME) {
+                    timeStamp = name(buffer.getInt(offset));
+                    offset += 4;
+                } else {
+                    timeStamp = formatTime(time);
+                }
+                history.add(new String[]{oldName, newName, timeStamp});
+            }
+            return history;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException |
+                NegativeArraySizeException e) {
+            throw new IllegalStateException("Corrupt history of " + filePath, e);
+        }
+    }
+
+    /**
+     * Return whether the Image at filePath has a history in this HistoryStore, without
+     * decoding it.
+     *
+     * @param filePath File path of an Image
+     * @return Whether filePath has a history
+     * @throws IllegalStateException If the index of the file is corrupt
+     */
+    public boolean contains(File filePath) {
+        try {
+            return find(filePath) != -1;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException |
+                NegativeArraySizeException e) {
+            throw new IllegalStateException("Corrupt history of " + filePath, e);
+        }
+    }
+
+    /**
+     * Return the file paths of every history in this HistoryStore, decoding only the paths.
+     *
+     * @return File paths with a history
+     * @throws IllegalStateException If the file is corrupt
+     */
+    public List<File> paths() {
+        List<File> paths = new ArrayList<>(recordCount);
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                int record = slot(slot);
+                if (record != -1) {
+                    paths.add(path(record));
+                }
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException |
+                NegativeArraySizeException e) {
+            throw new IllegalStateException("Corrupt history store", e);
+        }
+        return paths;
+    }
+
+    /**
+     * Return the offset of the record of filePath | -1 if there is none.
+     */
+    private int find(File filePath) {
+        if (slotCount == 0) {
+            return -1;
+        }
+        String folder = filePath.getParent();
+        String name = filePath.getName();
+        int mask = slotCount - 1;
+        for (int slot = hash(filePath) & mask, probes = 0; probes < slotCount;
+             slot = (slot + 1) & mask, probes++) {
+            int record = slot(slot);
+            if (record == -1) {
+                return -1;
+            }
+            int folderIndex = buffer.getInt(record);
+            if (name.equals(name(buffer.getInt(record + 4))) && (folderIndex == -1 ?
+                    folder == null : folder != null && folder.equals(name(folderIndex)))) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private int slot(int slot) {
+        return buffer.getInt(HEADER_BYTES + 4 * nameCount + 4 * slot);
+    }
+
+    private File path(int record) {
+        int folderIndex = buffer.getInt(record);
+        String name = name(buffer.getInt(record + 4));
+        return folderIndex == -1 ? new File(name) : new File(name(folderIndex), name);
+    }
+
+    private String name(int index) {
+        if (index < 0 || index >= nameCount) {
+            throw new IndexOutOfBoundsException("Name " + index + " of " + nameCount);
+        }
+        int offset = buffer.getInt(HEADER_BYTES + 4 * index);
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer name = buffer.duplicate();
+        name.position(offset + 4);
+        name.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(File filePath) {
+        int hash = filePath.getPath().hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Writes histories to file in the binary format, through a temporary file so a crash
+     * leaves either the old or the new file.
+     *
+     * @param file      File to write
+     * @param histories History of each Image file path
+     * @throws IOException If file cannot be written
+     */
+    public static void write(File file, Map<File, ? extends List<String[]>> histories)
+            throws IOException {
+        HashMap<String, Integer> nameIndexes = new HashMap<>();
+        List<byte[]> names = new ArrayList<>();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        List<File> paths = new ArrayList<>(histories.size());
+        int[] recordOffsets = new int[histories.size()];
+
+        for (Map.Entry<File, ? extends List<String[]>> entry : histories.entrySet()) {
+            recordOffsets[paths.size()] = records.size();
+            paths.add(entry.getKey());
+            String folder = entry.getKey().getParent();
+            records.writeInt(folder == null ? -1 : intern(folder, nameIndexes, names));
+            records.writeInt(intern(entry.getKey().getName(), nameIndexes, names));
+            records.writeInt(entry.getValue().size());
+            for (String[] change : entry.getValue()) {
+                records.writeInt(intern(field(change, 0), nameIndexes, names));
+                records.writeInt(intern(field(change, 1), nameIndexes, names));
+                long time = parseTime(field(change, 2));
+                records.writeLong(time);
+                if (time == NO_TIME) {
+                    records.writeInt(intern(field(change, 2), nameIndexes, names));
+                }
+            }
+        }
+
+        int slotCount = Integer.highestOneBit(Math.max(1, paths.size() * 2 - 1)) << 1;
+        int namesStart = HEADER_BYTES + 4 * names.size() + 4 * slotCount;
+        int[] nameOffsets = new int[names.size()];
+        int offset = namesStart;
+        for (int i = 0; i < names.size(); i++) {
+            nameOffsets[i] = offset;
+            offset += 4 + names.get(i).length;
+        }
+        int recordsStart = offset;
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < paths.size(); i++) {
+            int slot = hash(paths.get(i)) & (slotCount - 1);
+            while (slots[slot] != -1) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = recordsStart + recordOffsets[i];
+        }
+        if ((long) recordsStart + records.size() > Integer.MAX_VALUE) {
+            throw new IOException("Too many histories for one history store");
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             DataOutputStream data = new DataOutputStream(
+                     new BufferedOutputStream(out, 1 << 16))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(names.size());
+            data.writeInt(paths.size());
+            data.writeInt(slotCount);
+            for (int nameOffset : nameOffsets) {
+                data.writeInt(nameOffset);
+            }
+            for (int slot : slots) {
+                data.writeInt(slot);
+            }
+            for (byte[] name : names) {
+                data.writeInt(name.length);
+                data.write(name);
+            }
+            recordBytes.writeTo(data);
+            data.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String field(String[] change, int index) {
+        return index < change.length ? change[index] : "";
+    }
+
+    private static int intern(String name, HashMap<String, Integer> nameIndexes,
+                              List<byte[]> names) {
+        Integer index = nameIndexes.get(name);
+        if (index == null) {
+            index = names.size();
+            nameIndexes.put(name, index);
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    /**
+     * Return the histories in the lines of a config file in the text format:
+     * <br>tag1, tag2..
+     * <br>filePath1|oldName;newName;timeStamp|oldName;newName;timeStamp..
+     *
+     * @param config Contents of a config file in the text format, without its checksum
+     * @return History of each file path, in the order of the file
+     */
+    public static LinkedHashMap<File, ArrayList<String[]>> readText(String config) {
+        LinkedHashMap<File, ArrayList<String[]>> histories = new LinkedHashMap<>();
+        String[] lines = config.split("\r?\n");
+        // The first line holds the tags
+        for (int i = 1; i < lines.length; i++) {
+            if (!lines[i].isEmpty()) {
+                parseLine(lines[i], histories);
+            }
+        }
+        return histories;
+    }
+
+    /**
+     * Puts the history in a line of a config file in the text format in histories.
+     *
+     * @param line      filePath|oldName;newName;timeStamp|..
+     * @param histories Map to put the history in
+     */
+    static void parseLine(String line, Map<File, ArrayList<String[]>> histories) {
+        String[] lineElements = line.split("\\|");
+        ArrayList<String[]> history = new ArrayList<>(lineElements.length - 1);
+        for (int i = 1; i < lineElements.length; i++) {
+            history.add(lineElements[i].split(";"));
+        }
+        histories.put(new File(lineElements[0]), history);
+    }
+
+    /**
+     * Converts the histories of a config file in the text format to the binary format.
+     *
+     * @param config    Contents of a config file in the text format, without its checksum
+     * @param storeFile File to write the histories to
+     * @return Number of histories converted
+     * @throws IOException If storeFile cannot be written
+     */
+    public static int convert(String config, File storeFile) throws IOException {
+        LinkedHashMap<File, ArrayList<String[]>> histories = readText(config);
+        write(storeFile, histories);
+        return histories.size();
+    }
+
+    /**
+     * Return the epoch seconds of a time stamp as Controller logs it, as in
+     * "Sept, 05, 2017, 14:03:09", read as UTC | NO_TIME if it isn't in that format
+     * or wouldn't be formatted back the same.
+     */
+    static long parseTime(String timeStamp) {
+        String[] parts = timeStamp.split(", ");
+        if (parts.length != 4) {
+            return NO_TIME;
+        }
+        int month = Arrays.asList(MONTHS).indexOf(parts[0]);
+        String[] clock = parts[3].split(":");
+        if (month == -1 || clock.length != 3) {
+            return NO_TIME;
+        }
+        try {
+            long time = LocalDateTime.of(Integer.parseInt(parts[2]), month + 1,
+                    Integer.parseInt(parts[1]), Integer.parseInt(clock[0]),
+                    Integer.parseInt(clock[1]), Integer.parseInt(clock[2]))
+                    .toEpochSecond(ZoneOffset.UTC);
+            return formatTime(time).equals(timeStamp) ? time : NO_TIME;
+        } catch (NumberFormatException | DateTimeException e) {
+            return NO_TIME;
+        }
+    }
+
+    /**
+     * Return epoch seconds time as Controller logs time stamps, read as UTC.
+     */
+    static String formatTime(long time) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC);
+        StringBuilder timeStamp = new StringBuilder(24);
+        timeStamp.append(MONTHS[dateTime.getMonthValue() - 1]).append(", ");
+        pad(timeStamp, dateTime.getDayOfMonth()).append(", ");
+        timeStamp.append(dateTime.getYear()).append(", ");
+        pad(timeStamp, dateTime.getHour()).append(':');
+        pad(timeStamp, dateTime.getMinute()).append(':');
+        return pad(timeStamp, dateTime.getSecond()).toString();
+    }
+
+    private static StringBuilder pad(StringBuilder timeStamp, int value) {
+        if (value < 10) {
+            timeStamp.append('0');
+        }
+        return timeStamp.append(value);
+    }
+}
@@ -1,13 +1,10 @@
 package com.PhotoManager.model;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.logging.ConsoleHandler;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,49 +17,115 @@ public class Image {
     private File filePath;
     private File OSFilePath;
     private HashSet<String> tags;
+    private TagStore tagStore;
+    /**
+     * TagStore the tags of this Image's file are kept in in the OS's filesystem.
+     */
+    private TagStore OSTagStore;
+    /**
+     * Whether the tags changed since they were last written to a TagStore beside the name.
+     */
+    private boolean tagsPending;
     private String suggestedTag = "";
     private Logger logger = Logger.getLogger(Image.class.getName());
     private ArrayList<String[]> nameHistory;
+    /**
+     * Number of entries at the start of nameHistory whose renames were made in the OS's
+     * filesystem, the others being of renames still pending.
+     */
+    private int OSHistorySize;
+    /**
+     * File path this Image's history is saved under by the ConfigManager | null if none is.
+     */
+    private File historyPath;
+    /**
+     * Size and modification time of this Image's file when it was listed, or -1 if unknown.
+     */
+    private long fileSize = -1;
+    private long lastModified = -1;
 
     /**
-     * Constructs a new Image.
+     * Constructs a new Image whose tags are kept in its name.
      *
      * @param currentDirectory Current Directory that PhotoManager.model.Image is in.
      * @param filePath         FilePath to this Image in the OS's filesystem.
      */
     public Image(Directory currentDirectory, File filePath, ArrayList<String[]> nameHistory) {
+        this(currentDirectory, filePath, nameHistory, new FilenameTagStore());
+    }
+
+    /**
+     * Constructs a new Image whose tags are kept in tagStore.
+     *
+     * @param currentDirectory Current Directory that PhotoManager.model.Image is in.
+     * @param filePath         FilePath to this Image in the OS's filesystem.
+     * @param tagStore         TagStore this Image's tags are read from and kept in.
+     */
+    public Image(Directory currentDirectory, File filePath, ArrayList<String[]> nameHistory,
+                 TagStore tagStore) {
+        this(currentDirectory, filePath, nameHistory, tagStore, null);
+    }
+
+    /**
+     * Constructs a new Image whose tags are kept in tagStore, with the tags already parsed from
+     * its name.
+     *
+     * @param currentDirectory Current Directory that PhotoManager.model.Image is in.
+     * @param filePath         FilePath to this Image in the OS's filesystem.
+     * @param tagStore         TagStore this Image's tags are read from and kept in.
+     * @param nameTags         Tags in the name of filePath | null to parse them here
+     */
+    Image(Directory currentDirectory, File filePath, ArrayList<String[]> nameHistory,
+          TagStore tagStore, String[] nameTags) {
         this.currentDirectory = currentDirectory;
         this.oldDirectory = currentDirectory;
         this.filePath = filePath;
         this.OSFilePath = filePath;
+        this.tagStore = tagStore;
+        this.OSTagStore = tagStore;
         this.tags = new HashSet<>();
-        this.logger.addHandler(new ConsoleHandler());
         if (nameHistory != null) {
             this.nameHistory = nameHistory;
+            this.historyPath = nameHistory.isEmpty() ? null : filePath;
         } else {
             this.nameHistory = new ArrayList<>();
         }
+        this.OSHistorySize = this.nameHistory.size();
 
-        addInitialTags();
+        if (nameTags != null && tagStore.isInName()) {
+            Collections.addAll(tags, nameTags);
+        } else {
+            tags.addAll(tagStore.readTags(filePath));
+        }
     }
 
     /**
-     * Finds and adds all the initial tags on the Image to tags.
+     * Records the size and modification time this Image's file was listed with.
+     *
+     * @param fileSize     Size of the file in bytes
+     * @param lastModified Modification time of the file in milliseconds
      */
-    private void addInitialTags() {
-        // tag names excluding the first and last index
-        if (getImageName().contains("@")) {
-            ArrayList<String> initialTags = new ArrayList<>(Arrays.asList(getImageName().
-                    substring(0, getImageName().lastIndexOf(".")).split("@")));
-
-            initialTags.remove(0);
+    void setFileStamp(long fileSize, long lastModified) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
 
-            for (int i = 0; i < initialTags.size(); i++) {
-                initialTags.set(i, initialTags.get(i).trim());
-            }
+    /**
+     * Return the size of this Image's file when it was listed, or -1 if unknown.
+     *
+     * @return Size of the file in bytes | -1
+     */
+    long getFileSize() {
+        return fileSize;
+    }
 
-            tags.addAll(initialTags);
-        }
+    /**
+     * Return the modification time of this Image's file when it was listed, or -1 if unknown.
+     *
+     * @return Modification time of the file in milliseconds | -1
+     */
+    long getLastModified() {
+        return lastModified;
     }
 
     /**
@@ -81,9 +144,7 @@ public class Image {
      * @param tag String to be added to this PhotoManager.model.Image as a tag.
      */
     public void addTag(String tag) {
-        tags.add(tag);
-
-        addOrRemoveTag(" @" + tag, true);
+        changeTags(Collections.singleton(tag), Collections.emptySet());
     }
 
     /**
@@ -93,55 +154,62 @@ public class Image {
      * @param tag String to be removed from this Image if it exists.
      */
     public void removeTag(String tag) {
-        tags.remove(tag);
-        addOrRemoveTag(" @" + tag, false);
+        changeTags(Collections.emptySet(), Collections.singleton(tag));
     }
 
     /**
-     * If add is true, add changedElement to the end of the name of this image.
-     * <br>If add is false, remove changedElement from the name of this image.
+     * Removes the tags in remove from and adds the tags in add to this Image, working out its
+     * new name once so the Image is queued for a single rename.
+     * <br>Tags are removed first, so a tag in both sets ends up at the end of the name.
+     * <br>If the tags aren't kept in the name, the Image is queued to have its tags written
+     * instead and keeps its name.
      *
-     * @param changedElement String to add or remove from the Image name
-     * @param add            Boolean to decide whether or not to add or remove changedElement to the Image name
+     * @param add    Tags to add to the end of this Image's name
+     * @param remove Tags to remove from this Image's name
+     * @return Whether this Image's tags changed
      */
-    private void addOrRemoveTag(String changedElement, boolean add) {
-        String filePath = getFilePath().getAbsolutePath();
-        logger.log(Level.FINE, filePath);
-        logger.addHandler(new ConsoleHandler());
-        String imageName = getImageName();
-        logger.log(Level.FINE, imageName);
-        logger.addHandler(new ConsoleHandler());
-
-        if (add) {
-            String directoryPath = filePath.substring(0, filePath.lastIndexOf(File.separator) + 1);
-            String newName;
-
-            newName = imageName.substring(0, imageName.lastIndexOf(".")) + changedElement + imageName.substring(imageName.lastIndexOf("."));
-
-            logger.log(Level.FINE, newName);
-            logger.addHandler(new ConsoleHandler());
-            String newPath = directoryPath + newName;
-            logger.log(Level.FINE, newPath);
-            logger.addHandler(new ConsoleHandler());
-            setFilePath(new File(newPath));
-        } else {
-            // Remove changedElement from filePath
-            int indexOfElement = filePath.indexOf(changedElement);
+    public boolean changeTags(Set<String> add, Set<String> remove) {
+        if (!tagStore.isInName()) {
+            boolean changed = false;
+            for (String tag : remove) {
+                changed |= tags.remove(tag);
+            }
+            for (String tag : add) {
+                changed |= tags.add(tag);
+            }
+            if (changed) {
+                tagsPending = true;
+                getCurrentDirectory().addToUpdateQueue(this);
+            }
+            return changed;
+        }
 
-            if (indexOfElement != -1) {
-                setFilePath(new File(filePath.substring(0, indexOfElement) +
-                        filePath.substring(indexOfElement + changedElement.length())));
+        ArrayList<String> added = new ArrayList<>(add.size());
+        for (String tag : remove) {
+            tags.remove(tag);
+        }
+        for (String tag : add) {
+            if (tags.add(tag)) {
+                added.add(tag);
             }
         }
+
+        String imageName = getImageName();
+        String newName = TagNameCodec.changeTags(imageName, remove, added);
+        if (newName.equals(imageName)) {
+            return false;
+        }
+        logger.log(Level.FINE, imageName + " -> " + newName);
+        File directory = getFilePath().getParentFile();
+        setFilePath(directory == null ? new File(newName) : new File(directory, newName));
+        return true;
     }
 
     /**
      * Removes all tags from this Image.
      */
     public void removeAllTags() {
-        tags.clear();
-
-        setFilePath(new File(getImageName().split(" @")[0]));
+        changeTags(Collections.emptySet(), getTags());
     }
 
     /**
@@ -167,38 +235,146 @@ public class Image {
     }
 
     /**
-     * Moves/renames Image at OSFilePath to be filePath.
+     * Records that this Image's file was moved/renamed to target, in directory, by the
+     * RenameExecutor.
+     *
+     * @param target      New file path of this Image in the OS's filesystem
+     * @param directory   Directory target is in
+     * @param historySize Number of history entries whose renames are now made
      */
-    void updateOSPath() {
-        System.out.println(getTags());
-        if (getOSFilePath() != getFilePath()) {
-            try {
-                Files.move(Paths.get(getOSFilePath().getAbsolutePath()), Paths.get(getFilePath().getAbsolutePath()));
-                OSFilePath = getFilePath();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    void osPathMoved(File target, Directory directory, int historySize) {
+        OSFilePath = target;
+        oldDirectory = directory;
+        OSHistorySize = historySize;
+    }
 
-            oldDirectory.updateDirectoryChanges();
-            currentDirectory.updateDirectoryChanges();
+    /**
+     * Return the number of entries at the start of this Image's history whose renames were
+     * made in the OS's filesystem.
+     *
+     * @return Number of history entries of renames made
+     */
+    int getOSHistorySize() {
+        return OSHistorySize;
+    }
+
+    /**
+     * Puts this Image back at its file path in the OS's filesystem after a failed move, with
+     * the tags in that name, and drops the history entries of the renames that didn't happen.
+     *
+     * @param historySize Number of history entries whose renames were made, when the move
+     *                    was taken
+     */
+    void revertOSPath(int historySize) {
+        while (nameHistory.size() > historySize) {
+            nameHistory.remove(nameHistory.size() - 1);
+        }
+        filePath = OSFilePath;
+        currentDirectory = oldDirectory;
+        tagStore = OSTagStore;
+        tagsPending = false;
+        tags.clear();
+        tags.addAll(tagStore.readTags(OSFilePath));
+        if (currentDirectory != null) {
+            currentDirectory.imageChanged(this);
+        }
+    }
+
+    /**
+     * Records that this Image's tags were written to store by the RenameExecutor.
+     *
+     * @param store   TagStore the tags were written to
+     * @param current Whether the tags written are still this Image's tags
+     */
+    void tagsStored(TagStore store, boolean current) {
+        OSTagStore = store;
+        if (current) {
+            tagsPending = false;
+        }
+    }
+
+    /**
+     * Return whether this Image's tags changed since they were last written to its TagStore.
+     *
+     * @return true if the tags are waiting to be written
+     */
+    boolean hasPendingTags() {
+        return tagsPending;
+    }
+
+    /**
+     * Return the TagStore this Image's tags are kept in in the OS's filesystem.
+     *
+     * @return TagStore holding the tags of OSFilePath
+     */
+    TagStore getOSTagStore() {
+        return OSTagStore;
+    }
+
+    /**
+     * Return the TagStore this Image's tags are kept in.
+     *
+     * @return TagStore of this Image
+     */
+    public TagStore getTagStore() {
+        return tagStore;
+    }
 
-            OSFilePath = getFilePath();
-            oldDirectory = currentDirectory;
+    /**
+     * Moves this Image's tags to store. Tags moving into or out of the name rename this Image;
+     * the rename and writes are made by the next RenameExecutor batch.
+     *
+     * @param store TagStore to keep this Image's tags in from now on
+     * @return Whether this Image's name changed
+     */
+    public boolean moveTagsTo(TagStore store) {
+        if (store == tagStore) {
+            return false;
+        }
+        String imageName = getImageName();
+        String newName = imageName;
+        if (store.isInName()) {
+            newName = TagNameCodec.taggedName(imageName, tags);
+        } else if (tagStore.isInName()) {
+            newName = TagNameCodec.untaggedName(imageName);
         }
+        tagStore = store;
+        tagsPending = !store.isInName() && !tags.isEmpty();
+
+        if (!newName.equals(imageName)) {
+            File directory = getFilePath().getParentFile();
+            setFilePath(directory == null ? new File(newName) : new File(directory, newName));
+            return true;
+        }
+        if (tagsPending || !OSTagStore.isInName()) {
+            getCurrentDirectory().addToUpdateQueue(this);
+        }
+        return false;
+    }
+
+    /**
+     * Return the Directory this Image's file is in in the OS's filesystem.
+     *
+     * @return Directory at the parent of OSFilePath
+     */
+    Directory getOldDirectory() {
+        return oldDirectory;
     }
 
     /**
-     * Force the change of this Image's file path to newFilePath.
+     * Force the change of this Image's file path to newFilePath, with the tags in its name if
+     * tags are kept in the name.
      *
      * @param newFilePath New File path to this Image.
      */
     public void forceFilePath(File newFilePath) {
-        tags.clear();
-
         setFilePath(newFilePath);
 
-        // Adds all the tags in oldName to this Image
-        addInitialTags();
+        if (tagStore.isInName()) {
+            // Adds all the tags in the new name to this Image
+            tags.clear();
+            tags.addAll(tagStore.readTags(newFilePath));
+        }
     }
 
     /**
@@ -236,6 +412,27 @@ public class Image {
      */
     public void addHistory(String[] newHistory) {
         nameHistory.add(newHistory);
+        if (currentDirectory != null) {
+            currentDirectory.imageChanged(this);
+        }
+    }
+
+    /**
+     * Return the file path this Image's history was last saved under.
+     *
+     * @return Saved file path of this Image's history | null if it isn't saved
+     */
+    File getHistoryPath() {
+        return historyPath;
+    }
+
+    /**
+     * Records the file path this Image's history was saved under.
+     *
+     * @param historyPath Saved file path of this Image's history | null if it isn't saved
+     */
+    void setHistoryPath(File historyPath) {
+        this.historyPath = historyPath;
     }
 
     /**
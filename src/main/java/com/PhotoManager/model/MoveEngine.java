@@ -0,0 +1,139 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Moves Image files, within or across filesystems.
+ * <br>A move within a filesystem is a single atomic rename. The OS refuses to rename across
+ * filesystems, so those files are copied instead, without going through the Java heap, to a
+ * temporary file next to the target. The copy is forced to disk and checked against the
+ * source before it takes the target name and the source is deleted, so a failed move leaves
+ * the source as it was.
+ * <br>A MoveEngine may be used from several threads at once.
+ */
+public class MoveEngine {
+
+    /**
+     * Most bytes copied between two progress reports.
+     */
+    private static final long CHUNK = 8 * 1024 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    private final boolean verifyChecksum;
+
+    /**
+     * Constructs a MoveEngine that checks copies by their size.
+     */
+    public MoveEngine() {
+        this(false);
+    }
+
+    /**
+     * Constructs a MoveEngine that checks copies by their size, and by their CRC32 if
+     * verifyChecksum.
+     *
+     * @param verifyChecksum Whether copies are read back and compared with the source
+     */
+    public MoveEngine(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    /**
+     * Moves the file at source to target, which must not exist.
+     *
+     * @param source File to move
+     * @param target File path to move it to
+     * @param copied Told the number of bytes copied as a copy goes on | null
+     * @return Whether the file had to be copied to another filesystem
+     * @throws IOException If the file cannot be moved, in which case it is still at source
+     */
+    public boolean move(File source, File target, LongConsumer copied) throws IOException {
+        Path sourcePath = source.getAbsoluteFile().toPath();
+        Path targetPath = target.getAbsoluteFile().toPath();
+        if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+            // An atomic rename would replace it
+            throw new FileAlreadyExistsException(targetPath.toString());
+        }
+        try {
+            Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            // On another filesystem
+        }
+        copyAcross(sourcePath, targetPath, copied);
+        return true;
+    }
+
+    /**
+     * Copies source to target through a temporary file, then deletes source.
+     */
+    private void copyAcross(Path source, Path target, LongConsumer copied) throws IOException {
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE_NEW,
+                         StandardOpenOption.WRITE)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    long count = in.transferTo(position, Math.min(CHUNK, size - position), out);
+                    if (count <= 0) {
+                        break;
+                    }
+                    position += count;
+                    if (copied != null) {
+                        copied.accept(count);
+                    }
+                }
+                out.force(true);
+                if (position != size || out.size() != size || in.size() != size) {
+                    throw new IOException("Copy of " + source + " is " + out.size() +
+                            " bytes instead of " + size);
+                }
+            }
+            if (verifyChecksum && checksum(source) != checksum(part)) {
+                throw new IOException("Copy of " + source + " does not match it");
+            }
+            Files.setLastModifiedTime(part, Files.getLastModifiedTime(source));
+            Files.move(part, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        try {
+            Files.delete(source);
+        } catch (IOException e) {
+            // Keep the source rather than two copies
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /**
+     * Return the CRC32 of the file at path.
+     */
+    private static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
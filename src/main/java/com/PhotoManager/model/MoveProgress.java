@@ -0,0 +1,77 @@
+package com.PhotoManager.model;
+
+/**
+ * How far a batch of renames and moves has got.
+ */
+public class MoveProgress {
+
+    private final int done;
+    private final int total;
+    private final long bytesCopied;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a MoveProgress.
+     *
+     * @param done          Number of Images moved or failed so far
+     * @param total         Number of Images in the batch
+     * @param bytesCopied   Bytes copied to other filesystems so far
+     * @param elapsedMillis Time since the batch started in milliseconds
+     */
+    public MoveProgress(int done, int total, long bytesCopied, long elapsedMillis) {
+        this.done = done;
+        this.total = total;
+        this.bytesCopied = bytesCopied;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Return the number of Images moved or failed so far.
+     *
+     * @return Number of Images done
+     */
+    public int getDone() {
+        return done;
+    }
+
+    /**
+     * Return the number of Images in the batch.
+     *
+     * @return Number of Images to move
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Return the number of bytes copied to other filesystems so far.
+     *
+     * @return Bytes copied
+     */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * Return the time since the batch started.
+     *
+     * @return Elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Return whether every Image of the batch is done.
+     *
+     * @return true once the batch is done
+     */
+    public boolean isDone() {
+        return done == total;
+    }
+
+    @Override
+    public String toString() {
+        return done + "/" + total + " images, " + bytesCopied / (1024 * 1024) + " MB copied";
+    }
+}
@@ -0,0 +1,119 @@
+package com.PhotoManager.model;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What happened to each Image of a move of several Images to one Directory.
+ */
+public class MoveSummary {
+
+    /**
+     * What happened to one Image.
+     */
+    public enum Outcome {
+        /**
+         * Moved to the target Directory.
+         */
+        MOVED,
+        /**
+         * Already in the target Directory, so left where it is.
+         */
+        ALREADY_THERE,
+        /**
+         * Not moved, as a file or another Image of the move has its name in the target.
+         */
+        NAME_TAKEN,
+        /**
+         * Not moved, as the OS couldn't move its file.
+         */
+        FAILED
+    }
+
+    private final LinkedHashMap<Image, Outcome> outcomes = new LinkedHashMap<>();
+    private final LinkedHashMap<Image, IOException> causes = new LinkedHashMap<>();
+
+    /**
+     * Records what happened to image.
+     *
+     * @param image   Image of the move
+     * @param outcome What happened to it
+     */
+    public void put(Image image, Outcome outcome) {
+        outcomes.put(image, outcome);
+    }
+
+    /**
+     * Records that the OS couldn't move image.
+     *
+     * @param image Image of the move
+     * @param cause IOException thrown by the move
+     */
+    public void putFailure(Image image, IOException cause) {
+        outcomes.put(image, Outcome.FAILED);
+        causes.put(image, cause);
+    }
+
+    /**
+     * Return what happened to image.
+     *
+     * @param image Image of the move
+     * @return Outcome of the Image | null if it wasn't part of the move
+     */
+    public Outcome getOutcome(Image image) {
+        return outcomes.get(image);
+    }
+
+    /**
+     * Return the reason the OS couldn't move image.
+     *
+     * @param image Image of the move
+     * @return IOException thrown by the move | null if it didn't fail
+     */
+    public IOException getCause(Image image) {
+        return causes.get(image);
+    }
+
+    /**
+     * Return what happened to every Image, in the order they were given.
+     *
+     * @return Unmodifiable Map from each Image to its Outcome
+     */
+    public Map<Image, Outcome> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    /**
+     * Return the number of Images with the Outcome outcome.
+     *
+     * @param outcome Outcome to count
+     * @return Number of Images
+     */
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome imageOutcome : outcomes.values()) {
+            if (imageOutcome == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return whether every Image is in the target Directory.
+     *
+     * @return true if no Image was left behind
+     */
+    public boolean isComplete() {
+        return count(Outcome.MOVED) + count(Outcome.ALREADY_THERE) == outcomes.size();
+    }
+
+    @Override
+    public String toString() {
+        return count(Outcome.MOVED) + " moved, " + count(Outcome.ALREADY_THERE) +
+                " already there, " + count(Outcome.NAME_TAKEN) + " name taken, " +
+                count(Outcome.FAILED) + " failed";
+    }
+}
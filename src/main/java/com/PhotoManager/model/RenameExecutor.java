@@ -0,0 +1,795 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies the pending renames and moves of Images to the OS's filesystem in batches.
+ * <br>The Images queued in a Directory tree are grouped by the Directory they are going to.
+ * Groups are renamed in parallel, in parts of at most SPLIT_SIZE Images renamed one after
+ * another. Renames that depend on each other, because a file path one renames from or to is
+ * also renamed from or to by another, are taken out of their groups and renamed one after
+ * another in the order they were queued, so chains of renames within and across folders
+ * still work. Each move is then applied to the Directories it left and joined in memory, so
+ * no folder is listed again.
+ * <br>Batches can also run in the background, one at a time, while the tree keeps changing:
+ * an Image changed again during its rename stays queued for the next batch.
+ * <br>With a RenameJournal, each batch is journaled before it renames anything and each
+ * rename is journaled once made, so a batch cut short by a crash is finished on the next
+ * start.
+ * <br>Images whose tags are kept beside their name have their tags written in the same way,
+ * with the renames of their group, and each TagStore is flushed once per batch.
+ * <br>Files are moved by a MoveEngine, so moves to another filesystem are copied. Background
+ * batches that are large or copy files report their progress.
+ */
+public class RenameExecutor {
+
+    /**
+     * Fewest Images in a background batch that doesn't copy files for it to report progress.
+     */
+    private static final int PROGRESS_MIN_WRITES = 100;
+    /**
+     * Most Images going to the same Directory renamed one after another on one thread.
+     */
+    static final int SPLIT_SIZE = 64;
+
+    private ForkJoinPool pool;
+    private RenameJournal journal;
+    private final MoveEngine engine = new MoveEngine();
+    private final List<Consumer<? super MoveProgress>> progressListeners =
+            new CopyOnWriteArrayList<>();
+    private final List<Consumer<? super Image>> revertListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Batch being renamed in the background and not applied yet | null. Only used on the
+     * model's thread.
+     */
+    private Batch running;
+    /**
+     * Result of the background batch that starts once running is applied | null.
+     */
+    private CompletableFuture<BatchResult> next;
+    private static Logger logger = Logger.getLogger(RenameExecutor.class.getName());
+
+    /**
+     * Constructs a RenameExecutor that renames in at most &lt;parallelism&gt; folders at once.
+     *
+     * @param parallelism Number of threads used to rename Images
+     */
+    public RenameExecutor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Constructs a RenameExecutor that renames in at most &lt;parallelism&gt; folders at once
+     * and journals every batch in journal first.
+     *
+     * @param parallelism Number of threads used to rename Images
+     * @param journal     RenameJournal that has recovered the batches of earlier runs
+     */
+    public RenameExecutor(int parallelism, RenameJournal journal) {
+        this(parallelism);
+        this.journal = journal;
+    }
+
+    /**
+     * Renames every Image queued in root or one of its loaded sub-Directories to its new file
+     * path, then updates the Directories that changed. Must be called on the thread which owns
+     * the tree. A batch running in the background is applied first.
+     * <br>An Image that cannot be renamed goes back to its name in the OS's filesystem.
+     *
+     * @param root Top of the Directory tree to flush
+     * @return BatchResult with the number of renames, the failures and the time taken
+     */
+    public BatchResult flush(Directory root) {
+        finishRunning();
+        Batch batch = new Batch(root, null);
+        batch.start();
+        return batch.apply();
+    }
+
+    /**
+     * Starts renaming every Image queued in root or one of its loaded sub-Directories in the
+     * background. Must be called on the thread which owns the tree, which modelExecutor runs
+     * on. The renames are applied to the tree through modelExecutor.
+     * <br>If a batch is already running, the next one starts once it is applied and takes
+     * everything queued until then; all callers in the meantime share its result.
+     *
+     * @param root          Top of the Directory tree to flush
+     * @param modelExecutor Executor that runs on the thread which owns the tree
+     * @return BatchResult that completes once the renames are applied to the tree
+     */
+    public CompletableFuture<BatchResult> flushAsync(Directory root, Executor modelExecutor) {
+        if (running == null) {
+            Batch batch = new Batch(root, modelExecutor);
+            running = batch;
+            batch.start().whenComplete((failures, e) -> modelExecutor.execute(() -> {
+                if (running == batch) {
+                    running = null;
+                }
+                batch.apply();
+            }));
+            return batch.result;
+        }
+        if (next == null) {
+            next = running.result.thenComposeAsync(result -> {
+                next = null;
+                return flushAsync(root, modelExecutor);
+            }, modelExecutor);
+        }
+        return next;
+    }
+
+    /**
+     * Waits for the batch running in the background, if any, and applies it to the tree.
+     */
+    private void finishRunning() {
+        if (running != null) {
+            Batch batch = running;
+            running = null;
+            batch.apply();
+        }
+    }
+
+    /**
+     * Adds a listener that is told about the progress of background batches on the model's
+     * thread, if they have at least PROGRESS_MIN_WRITES Images or copy files to another
+     * filesystem. The last report of a batch is done.
+     *
+     * @param listener Listener of progress reports
+     */
+    public void addProgressListener(Consumer<? super MoveProgress> listener) {
+        progressListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener that is told on the model's thread about each Image put back at its
+     * file path in the OS's filesystem after its rename failed, once it has the tags in that
+     * name again.
+     *
+     * @param listener Listener of reverted Images
+     */
+    public void addRevertListener(Consumer<? super Image> listener) {
+        revertListeners.add(listener);
+    }
+
+    /**
+     * Stops the threads of this RenameExecutor once the running batch is done.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The file path an Image had and is being renamed to when its batch started, and the tags
+     * it is having written.
+     */
+    private static class Move {
+        final Image image;
+        final File source;
+        final File target;
+        final Directory directory;
+        final ArrayList<String[]> history;
+        /**
+         * Number of entries of history whose renames were made before this Move.
+         */
+        final int madeHistory;
+        final boolean rename;
+        /**
+         * Index of this Move in the journaled Moves of its Batch | -1 if it doesn't rename.
+         */
+        int index = -1;
+        final TagStore store;
+        final TagStore previousStore;
+        /**
+         * Tags to write to store | null if store keeps them in the name.
+         */
+        final Set<String> tags;
+
+        Move(Image image) {
+            this.image = image;
+            this.source = image.getOSFilePath();
+            this.target = image.getFilePath();
+            this.directory = image.getCurrentDirectory();
+            this.history = new ArrayList<>(image.getHistory());
+            this.madeHistory = image.getOSHistorySize();
+            this.rename = !source.equals(target);
+            this.store = image.getTagStore();
+            this.previousStore = image.getOSTagStore();
+            this.tags = store.isInName() ? null : image.getTags();
+        }
+
+        /**
+         * Renames the Image with engine and writes its tags. If the tags cannot be written,
+         * the rename is undone.
+         *
+         * @param copied Told the number of bytes copied if the Image is copied
+         */
+        void make(MoveEngine engine, LongConsumer copied) throws IOException {
+            if (rename) {
+                engine.move(source, target, copied);
+            }
+            try {
+                if (tags != null) {
+                    store.writeTags(target, tags);
+                    if (rename) {
+                        store.removeTags(source);
+                    }
+                }
+                if (previousStore != store && !previousStore.isInName()) {
+                    previousStore.removeTags(source);
+                    if (rename) {
+                        previousStore.removeTags(target);
+                    }
+                }
+            } catch (IOException e) {
+                if (rename) {
+                    try {
+                        engine.move(target, source, null);
+                    } catch (IOException undo) {
+                        e.addSuppressed(undo);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The renames queued in a tree at one point, grouped by the Directory they are going to.
+     */
+    private class Batch {
+        private final long startTime = System.nanoTime();
+        private final LinkedHashMap<Directory, List<Move>> groups = new LinkedHashMap<>();
+        /**
+         * Directories whose update queues had Images in them.
+         */
+        private final List<Directory> queuedIn = new ArrayList<>();
+        /**
+         * Every Move of this Batch that renames, in the order they are journaled.
+         */
+        private final List<Move> moves = new ArrayList<>();
+        /**
+         * TagStores beside the name that this Batch writes to.
+         */
+        private final LinkedHashSet<TagStore> stores = new LinkedHashSet<>();
+        private int writes;
+        private long batchId;
+        private CompletableFuture<List<Failure>> renames;
+        private final CompletableFuture<BatchResult> result = new CompletableFuture<>();
+        /**
+         * Executor progress is reported through | null if it isn't reported.
+         */
+        private final Executor modelExecutor;
+        private final AtomicInteger writesDone = new AtomicInteger();
+        private final AtomicLong bytesCopied = new AtomicLong();
+        private final AtomicBoolean progressPending = new AtomicBoolean();
+
+        /**
+         * Collects the renames queued in root's tree, on the model's thread. Each Image is
+         * renamed once, with the Images going to the same Directory.
+         */
+        Batch(Directory root, Executor modelExecutor) {
+            this.modelExecutor = modelExecutor;
+            LinkedHashSet<Image> queued = new LinkedHashSet<>();
+            collectQueued(root, queued);
+            for (Image image : queued) {
+                boolean rename = !image.getOSFilePath().equals(image.getFilePath());
+                boolean storeTags = image.hasPendingTags() ||
+                        image.getOSTagStore() != image.getTagStore() ||
+                        (rename && !image.getTagStore().isInName());
+                if (rename || storeTags) {
+                    Move move = new Move(image);
+                    groups.computeIfAbsent(image.getCurrentDirectory(),
+                            directory -> new ArrayList<>()).add(move);
+                    writes++;
+                    if (rename) {
+                        move.index = moves.size();
+                        moves.add(move);
+                    }
+                    for (TagStore store : new TagStore[]{move.store, move.previousStore}) {
+                        if (!store.isInName()) {
+                            stores.add(store);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void collectQueued(Directory directory, LinkedHashSet<Image> queued) {
+            List<Image> updateQueue = directory.getUpdateQueue();
+            if (!updateQueue.isEmpty()) {
+                queuedIn.add(directory);
+                queued.addAll(updateQueue);
+            }
+            for (Directory subDirectory : directory.getLoadedDirectories()) {
+                collectQueued(subDirectory, queued);
+            }
+        }
+
+        /**
+         * Starts journaling the Moves, then renaming the groups in parallel, on the pool.
+         *
+         * @return Images that couldn't be renamed, once every group is done
+         */
+        CompletableFuture<List<Failure>> start() {
+            if (writes == 0) {
+                renames = CompletableFuture.completedFuture(new ArrayList<>());
+                return renames;
+            }
+            renames = CompletableFuture.supplyAsync(this::begin, pool).thenCompose(failure -> {
+                if (failure != null) {
+                    return CompletableFuture.completedFuture(failAll(failure));
+                }
+                List<CompletableFuture<List<Failure>>> tasks = new ArrayList<>();
+                for (List<Move> group : split()) {
+                    tasks.add(CompletableFuture.supplyAsync(() -> moveAll(group), pool));
+                }
+                return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                        .thenApply(done -> {
+                            List<Failure> failures = new ArrayList<>();
+                            for (CompletableFuture<List<Failure>> task : tasks) {
+                                failures.addAll(task.join());
+                            }
+                            failures.addAll(flushStores(failures));
+                            return failures;
+                        });
+            });
+            return renames;
+        }
+
+        /**
+         * Return the parts to rename in parallel. The Moves that rename from or to a file path
+         * another Move of this Batch renames from or to, as in chains of renames within or
+         * across folders, are one part in the order they were queued. The others are split by
+         * the Directory they are going to into parts of at most SPLIT_SIZE.
+         */
+        private List<List<Move>> split() {
+            // Number of renames from or to each file path
+            HashMap<File, Integer> uses = new HashMap<>();
+            for (Move move : moves) {
+                uses.merge(move.source, 1, Integer::sum);
+                uses.merge(move.target, 1, Integer::sum);
+            }
+            List<Move> dependent = new ArrayList<>();
+            for (Move move : moves) {
+                if (uses.get(move.source) > 1 || uses.get(move.target) > 1) {
+                    dependent.add(move);
+                }
+            }
+            HashSet<Move> ordered = new HashSet<>(dependent);
+            List<List<Move>> parts = new ArrayList<>();
+            for (List<Move> group : groups.values()) {
+                List<Move> part = new ArrayList<>();
+                for (Move move : group) {
+                    if (ordered.contains(move)) {
+                        continue;
+                    }
+                    part.add(move);
+                    if (part.size() == SPLIT_SIZE) {
+                        parts.add(part);
+                        part = new ArrayList<>();
+                    }
+                }
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            if (!dependent.isEmpty()) {
+                parts.add(dependent);
+            }
+            return parts;
+        }
+
+        /**
+         * Renames a group of Images going to the same Directory in order, and writes their
+         * tags, on one of the pool's threads.
+         *
+         * @param group Moves of the Images going to the same Directory
+         * @return Images that couldn't be renamed or have their tags written
+         */
+        private List<Failure> moveAll(List<Move> group) {
+            List<Failure> failures = new ArrayList<>();
+            for (Move move : group) {
+                try {
+                    move.make(engine, count -> {
+                        bytesCopied.addAndGet(count);
+                        publish();
+                    });
+                } catch (IOException e) {
+                    failures.add(new Failure(move.image, move.target, e));
+                    writesDone.incrementAndGet();
+                    publish();
+                    continue;
+                }
+                made(move);
+                writesDone.incrementAndGet();
+                publish();
+            }
+            return failures;
+        }
+
+        /**
+         * Reports the progress of this Batch to the listeners on the model's thread, if it is
+         * a background batch that is large or copies files. The listeners are told about the
+         * latest progress when the report runs, so reports they haven't heard about yet are
+         * coalesced.
+         */
+        private void publish() {
+            if (modelExecutor == null || progressListeners.isEmpty() ||
+                    (writes < PROGRESS_MIN_WRITES && bytesCopied.get() == 0)) {
+                return;
+            }
+            if (progressPending.compareAndSet(false, true)) {
+                modelExecutor.execute(() -> {
+                    progressPending.set(false);
+                    MoveProgress latest = new MoveProgress(writesDone.get(), writes,
+                            bytesCopied.get(), (System.nanoTime() - startTime) / 1000000);
+                    for (Consumer<? super MoveProgress> listener : progressListeners) {
+                        listener.accept(latest);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Writes out the tags held back by the TagStores this Batch wrote to. Tags that cannot
+         * be written stay held back until the next flush.
+         *
+         * @param failures Failures of the Moves, whose tags weren't written
+         * @return A Failure for every other Move whose tags couldn't be written out
+         */
+        private List<Failure> flushStores(List<Failure> failures) {
+            HashMap<TagStore, IOException> unflushed = new HashMap<>();
+            for (TagStore store : stores) {
+                try {
+                    store.flush();
+                } catch (IOException e) {
+                    unflushed.put(store, e);
+                }
+            }
+            List<Failure> flushFailures = new ArrayList<>();
+            if (unflushed.isEmpty()) {
+                return flushFailures;
+            }
+            HashSet<Image> failed = new HashSet<>();
+            for (Failure failure : failures) {
+                failed.add(failure.getImage());
+            }
+            for (List<Move> group : groups.values()) {
+                for (Move move : group) {
+                    if (failed.contains(move.image)) {
+                        continue;
+                    }
+                    for (TagStore store : new TagStore[]{move.store, move.previousStore}) {
+                        IOException cause = unflushed.get(store);
+                        if (cause != null && (!store.isFlushed(move.source) ||
+                                !store.isFlushed(move.target))) {
+                            flushFailures.add(new Failure(move.image, move.target, cause,
+                                    true));
+                            break;
+                        }
+                    }
+                }
+            }
+            return flushFailures;
+        }
+
+        /**
+         * Journals the Moves of this Batch, if there is a journal and anything to rename.
+         *
+         * @return Why the Moves couldn't be journaled | null
+         */
+        private IOException begin() {
+            if (journal == null || moves.isEmpty()) {
+                return null;
+            }
+            List<RenameJournal.Entry> entries = new ArrayList<>();
+            for (Move move : moves) {
+                entries.add(new RenameJournal.Entry(move.source, move.target, move.history));
+            }
+            try {
+                batchId = journal.begin(entries);
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        }
+
+        /**
+         * Return a Failure for every Move, as none can be made safely without the journal.
+         */
+        private List<Failure> failAll(IOException cause) {
+            List<Failure> failures = new ArrayList<>();
+            for (Move move : moves) {
+                failures.add(new Failure(move.image, move.target, cause));
+            }
+            return failures;
+        }
+
+        /**
+         * Records in the journal that move was made, if it renamed a journaled file.
+         */
+        private void made(Move move) {
+            if (batchId == 0 || move.index < 0) {
+                return;
+            }
+            try {
+                journal.made(batchId, move.index);
+            } catch (IOException e) {
+                // Recovery then tells whether it was made from the files left
+                logger.log(Level.WARNING, "Cannot journal rename of " + move.target + ": " + e);
+                logger.addHandler(new ConsoleHandler());
+            }
+        }
+
+        /**
+         * Records in the journal that this Batch is done.
+         */
+        private void commit(HashSet<Image> failed) {
+            if (batchId == 0) {
+                return;
+            }
+            List<Integer> failedIndexes = new ArrayList<>();
+            for (int i = 0; i < moves.size(); i++) {
+                if (failed.contains(moves.get(i).image)) {
+                    failedIndexes.add(i);
+                }
+            }
+            try {
+                journal.commit(batchId, failedIndexes);
+            } catch (IOException e) {
+                // Its failed renames are tried again when the journal is recovered
+                logger.log(Level.WARNING, "Cannot commit rename batch " + batchId + ": " + e);
+                logger.addHandler(new ConsoleHandler());
+            }
+        }
+
+        /**
+         * Waits for the renames and applies them to the tree, on the model's thread. Does
+         * nothing if this Batch was applied already.
+         *
+         * @return BatchResult of this Batch
+         */
+        BatchResult apply() {
+            if (result.isDone()) {
+                return result.join();
+            }
+            List<Failure> failures = renames.join();
+            HashSet<Image> failed = new HashSet<>();
+            // Images moved whose tags weren't written out, so they stay queued
+            HashSet<Image> unstored = new HashSet<>();
+            for (Failure failure : failures) {
+                (failure.isUnflushed() ? unstored : failed).add(failure.getImage());
+            }
+            commit(failed);
+
+            LinkedHashSet<Directory> changed = new LinkedHashSet<>();
+            HashSet<Image> done = new HashSet<>();
+            int renamed = 0;
+            int tagged = 0;
+            for (List<Move> group : groups.values()) {
+                for (Move move : group) {
+                    Image image = move.image;
+                    // Whether the Image was changed again since the batch started
+                    boolean unchanged = image.getFilePath().equals(move.target) &&
+                            image.getCurrentDirectory() == move.directory &&
+                            image.getTagStore() == move.store &&
+                            (move.tags == null || move.tags.equals(image.getTags()));
+                    if (failed.contains(image)) {
+                        if (unchanged) {
+                            // Put it back where it is in the OS's filesystem
+                            image.revertOSPath(move.madeHistory);
+                            if (move.rename) {
+                                move.directory.imageMoved(image, move.source);
+                                image.getCurrentDirectory().imageMoved(image, move.source);
+                            }
+                            for (Consumer<? super Image> listener : revertListeners) {
+                                listener.accept(image);
+                            }
+                            done.add(image);
+                        }
+                        continue;
+                    }
+                    boolean stored = !unstored.contains(image);
+                    if (stored) {
+                        image.tagsStored(move.store, unchanged);
+                        if (move.tags != null) {
+                            tagged++;
+                        }
+                    }
+                    if (!move.rename) {
+                        if (unchanged && stored) {
+                            done.add(image);
+                        }
+                        continue;
+                    }
+                    Directory sourceDirectory = image.getOldDirectory();
+                    image.osPathMoved(move.target, move.directory, move.history.size());
+                    sourceDirectory.imageMoved(image, move.source);
+                    move.directory.imageMoved(image, move.source);
+                    image.getCurrentDirectory().imageMoved(image, move.source);
+                    changed.add(sourceDirectory);
+                    changed.add(move.directory);
+                    renamed++;
+                    if (unchanged && stored) {
+                        done.add(image);
+                    }
+                }
+            }
+            for (Directory directory : queuedIn) {
+                directory.removeFromUpdateQueue(done);
+            }
+
+            BatchResult batchResult = new BatchResult(renamed, tagged, failures, changed.size(),
+                    (System.nanoTime() - startTime) / 1000000);
+            if (!failures.isEmpty()) {
+                logger.log(Level.WARNING, "Rename batch: " + batchResult);
+                logger.addHandler(new ConsoleHandler());
+            } else if (renamed > 0 || tagged > 0) {
+                logger.log(Level.FINE, "Rename batch: " + batchResult);
+            }
+            result.complete(batchResult);
+            return batchResult;
+        }
+    }
+
+    /**
+     * An Image that couldn't be renamed, and why.
+     */
+    public static class Failure {
+
+        private final Image image;
+        private final File target;
+        private final IOException cause;
+        private final boolean unflushed;
+
+        Failure(Image image, File target, IOException cause) {
+            this(image, target, cause, false);
+        }
+
+        Failure(Image image, File target, IOException cause, boolean unflushed) {
+            this.image = image;
+            this.target = target;
+            this.cause = cause;
+            this.unflushed = unflushed;
+        }
+
+        /**
+         * Return the Image that wasn't renamed or whose tags weren't written out.
+         *
+         * @return Image that kept its name in the OS's filesystem, unless it is unflushed
+         */
+        public Image getImage() {
+            return image;
+        }
+
+        /**
+         * Return the file path the Image was going to be renamed to.
+         *
+         * @return Target file path
+         */
+        public File getTarget() {
+            return target;
+        }
+
+        /**
+         * Return the reason the rename failed.
+         *
+         * @return IOException thrown by the rename
+         */
+        public IOException getCause() {
+            return cause;
+        }
+
+        /**
+         * Return whether only writing out the Image's tags failed: it was renamed if it was to
+         * be, and stays queued so its tags are written out by the next batch.
+         *
+         * @return true if the tags are still held back by their TagStore
+         */
+        public boolean isUnflushed() {
+            return unflushed;
+        }
+
+        @Override
+        public String toString() {
+            return image.getOSFilePath() + " -> " + target + ": " + cause;
+        }
+    }
+
+    /**
+     * Outcome of one flush of pending renames.
+     */
+    public static class BatchResult {
+
+        private final int renamed;
+        private final int tagged;
+        private final List<Failure> failures;
+        private final int directoriesUpdated;
+        private final long elapsedMillis;
+
+        BatchResult(int renamed, int tagged, List<Failure> failures, int directoriesUpdated,
+                    long elapsedMillis) {
+            this.renamed = renamed;
+            this.tagged = tagged;
+            this.failures = Collections.unmodifiableList(failures);
+            this.directoriesUpdated = directoriesUpdated;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Return the number of Images renamed in the OS's filesystem.
+         *
+         * @return Number of successful renames
+         */
+        public int getRenamed() {
+            return renamed;
+        }
+
+        /**
+         * Return the number of Images whose tags were written to a TagStore beside the name.
+         *
+         * @return Number of successful tag writes
+         */
+        public int getTagged() {
+            return tagged;
+        }
+
+        /**
+         * Return the Images that couldn't be renamed or have their tags written.
+         *
+         * @return List of Failures, empty if every rename succeeded
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Return the number of Directories updated with the renames.
+         *
+         * @return Number of updated Directories
+         */
+        public int getDirectoriesUpdated() {
+            return directoriesUpdated;
+        }
+
+        /**
+         * Return the time the batch took.
+         *
+         * @return Elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return renamed + " renamed, " + tagged + " tagged, " + failures.size() +
+                    " failed, " + directoriesUpdated + " folders updated in " + elapsedMillis +
+                    " ms" + (failures.isEmpty() ? "" : " " + failures);
+        }
+    }
+}
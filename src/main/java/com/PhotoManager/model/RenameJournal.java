@@ -0,0 +1,393 @@
+package com.PhotoManager.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the renames made by a RenameExecutor, so a crash between renaming
+ * Images and writing their histories to the config file can be recovered from.
+ * <br>Before a batch renames anything, all of its moves are appended with the history each Image
+ * will have, and the journal is forced to disk once for the whole batch. Each move made is
+ * then appended without forcing, and once the batch is done, a commit naming the moves that
+ * failed. After the config file has been written with the histories of every committed batch,
+ * the journal is emptied.
+ * <br>The journal is written in the format:
+ * <br>magic, version, records
+ * <br>where a record is:
+ * <br>length, type, batch id, payload, CRC32 of type, batch id and payload
+ * <br>A begin record's payload is the number of moves and the (source, target, history) of
+ * each; a made record's payload is the index of a move; a commit record's payload is the
+ * number of failed moves and the index of each. A record cut short by a crash, and
+ * everything after it, is ignored.
+ */
+public class RenameJournal {
+
+    private static final int MAGIC = 0x504d524a;
+    private static final int VERSION = 1;
+    private static final byte BEGIN = 1;
+    private static final byte COMMIT = 2;
+    private static final byte MADE = 3;
+
+    private final File journalFile;
+    private FileChannel channel;
+    private long lastBegun;
+    private long lastCommitted;
+    private static Logger logger = Logger.getLogger(RenameJournal.class.getName());
+
+    /**
+     * Constructs a RenameJournal that appends to journalFile. Call recover before the first
+     * batch to finish the batches of an earlier run.
+     *
+     * @param journalFile File the journal is kept in
+     */
+    public RenameJournal(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * A rename recorded in the journal.
+     */
+    public static class Entry {
+        final File source;
+        final File target;
+        final ArrayList<String[]> history;
+
+        Entry(File source, File target, ArrayList<String[]> history) {
+            this.source = source;
+            this.target = target;
+            this.history = history;
+        }
+
+        /**
+         * Return the file path the Image was renamed from.
+         *
+         * @return Source file path
+         */
+        public File getSource() {
+            return source;
+        }
+
+        /**
+         * Return the file path the Image was renamed to.
+         *
+         * @return Target file path
+         */
+        public File getTarget() {
+            return target;
+        }
+
+        /**
+         * Return the name history of the Image once renamed.
+         *
+         * @return History in the format [oldName, newName, timeStamp]
+         */
+        public ArrayList<String[]> getHistory() {
+            return history;
+        }
+    }
+
+    /**
+     * Records that a batch is about to make the renames in entries, and forces the record to
+     * disk before returning.
+     *
+     * @param entries Renames of the batch, in the order they will be made
+     * @return Id of the batch, to commit it with
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized long begin(List<Entry> entries) throws IOException {
+        long batchId = ++lastBegun;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.source.getPath());
+            out.writeUTF(entry.target.getPath());
+            out.writeInt(entry.history.size());
+            for (String[] change : entry.history) {
+                for (int i = 0; i < 3; i++) {
+                    out.writeUTF(change[i]);
+                }
+            }
+        }
+        append(BEGIN, batchId, bytes.toByteArray());
+        channel.force(false);
+        return batchId;
+    }
+
+    /**
+     * Records that a rename of a batch was made. The record isn't forced to disk: it only
+     * has to outlive the JVM, as the rename itself isn't forced either.
+     *
+     * @param batchId Id returned by begin
+     * @param index   Index of the rename in the batch
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void made(long batchId, int index) throws IOException {
+        append(MADE, batchId, ByteBuffer.allocate(4).putInt(index).array());
+    }
+
+    /**
+     * Records that a batch is done. The record is forced to disk with the next batch.
+     *
+     * @param batchId Id returned by begin
+     * @param failed  Indexes of the renames of the batch that weren't made
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void commit(long batchId, List<Integer> failed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(failed.size());
+        for (int index : failed) {
+            out.writeInt(index);
+        }
+        append(COMMIT, batchId, bytes.toByteArray());
+        lastCommitted = Math.max(lastCommitted, batchId);
+    }
+
+    /**
+     * Return the id of the last committed batch, whose histories are in a config file
+     * compiled from now on.
+     *
+     * @return Id of the last committed batch | 0
+     */
+    public synchronized long getLastCommitted() {
+        return lastCommitted;
+    }
+
+    /**
+     * Empties the journal if every batch that began is committed and no later than batchId,
+     * since a config file holding their histories has been written.
+     *
+     * @param batchId Id of the last batch committed when the config file was compiled
+     */
+    public synchronized void checkpoint(long batchId) {
+        if (batchId != lastBegun || lastCommitted != lastBegun ||
+                (channel == null && !journalFile.exists())) {
+            return;
+        }
+        try {
+            open().truncate(0);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot empty rename journal: " + e);
+            logger.addHandler(new ConsoleHandler());
+        }
+    }
+
+    /**
+     * Return the channel to the journal file, opened at its end.
+     */
+    private FileChannel open() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+        return channel;
+    }
+
+    /**
+     * Appends a record to the journal.
+     */
+    private void append(byte type, long batchId, byte[] payload) throws IOException {
+        FileChannel channel = open();
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.write(header, 0);
+            channel.position(8);
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 8 + payload.length + 8);
+        record.putInt(1 + 8 + payload.length).put(type).putLong(batchId).put(payload);
+        crc.update(record.array(), 4, 1 + 8 + payload.length);
+        record.putLong(crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    /**
+     * Finishes the batches left in the journal by an earlier run. The renames of a committed
+     * batch that didn't fail were made. A rename of a batch that never committed was made if
+     * it was recorded as made; if it wasn't, it is the last its RenameExecutor started in its
+     * order at most, so it was made if its source is gone and its target there, and is made
+     * now if its source is still there and its target free. Must be called before the first
+     * batch of this run.
+     * <br>The journal is kept until the next checkpoint, so a crash during recovery recovers
+     * again.
+     *
+     * @return Renames that have been made, in the order they were made, for their histories to
+     * be saved under their targets
+     */
+    public synchronized List<Entry> recover() {
+        List<Entry> made = new ArrayList<>();
+        if (!journalFile.exists()) {
+            return made;
+        }
+        HashMap<Long, List<Entry>> batches = new HashMap<>();
+        List<Long> order = new ArrayList<>();
+        HashMap<Long, HashSet<Integer>> commits = new HashMap<>();
+        HashMap<Long, HashSet<Integer>> madeIndexes = new HashMap<>();
+        long validLength;
+        try {
+            validLength = read(batches, order, commits, madeIndexes);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot read rename journal: " + e);
+            logger.addHandler(new ConsoleHandler());
+            validLength = 0;
+        }
+        if (validLength < journalFile.length()) {
+            // Drop what a crash cut short, so the records appended from now on can be read
+            try (FileChannel journal = FileChannel.open(journalFile.toPath(),
+                    StandardOpenOption.WRITE)) {
+                journal.truncate(validLength);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot repair rename journal: " + e);
+                logger.addHandler(new ConsoleHandler());
+            }
+        }
+
+        for (long batchId : order) {
+            List<Entry> entries = batches.get(batchId);
+            HashSet<Integer> failed = commits.get(batchId);
+            HashSet<Integer> recorded = madeIndexes.getOrDefault(batchId, new HashSet<>());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (failed != null) {
+                    if (!failed.contains(i)) {
+                        made.add(entry);
+                    }
+                    continue;
+                }
+                boolean moved = recorded.contains(i) ||
+                        (entry.target.exists() && !entry.source.exists());
+                if (!moved && entry.source.exists() && !entry.target.exists()) {
+                    // Interrupted before this rename was made
+                    try {
+                        Files.move(entry.source.toPath(), entry.target.toPath());
+                        moved = true;
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Cannot replay rename of " + entry.source +
+                                ": " + e);
+                        logger.addHandler(new ConsoleHandler());
+                    }
+                }
+                if (moved) {
+                    made.add(entry);
+                }
+            }
+            lastBegun = Math.max(lastBegun, batchId);
+        }
+        lastCommitted = lastBegun;
+        return made;
+    }
+
+    /**
+     * Reads every whole record of the journal into batches, in the order they began, the
+     * indexes of the renames recorded as made, and commits.
+     *
+     * @return Length of the journal up to the end of its last whole record
+     */
+    private long read(HashMap<Long, List<Entry>> batches, List<Long> order,
+                      HashMap<Long, HashSet<Integer>> commits,
+                      HashMap<Long, HashSet<Integer>> made) throws IOException {
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+        if (journal.length == 0) {
+            return 0;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal));
+        if (journal.length < 8 || in.readInt() != MAGIC) {
+            throw new IOException("Not a rename journal");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported rename journal version " + version);
+        }
+
+        int offset = 8;
+        while (offset + 4 <= journal.length) {
+            int length = ByteBuffer.wrap(journal, offset, 4).getInt();
+            if (length < 9 || offset + 4 + length + 8 > journal.length) {
+                // Cut short by a crash
+                return offset;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(journal, offset + 4, length);
+            if (ByteBuffer.wrap(journal, offset + 4 + length, 8).getLong() != crc.getValue()) {
+                return offset;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(journal,
+                    offset + 4, length));
+            byte type = record.readByte();
+            long batchId = record.readLong();
+            try {
+                if (type == BEGIN) {
+                    batches.put(batchId, readEntries(record));
+                    order.add(batchId);
+                } else if (type == COMMIT) {
+                    HashSet<Integer> failed = new HashSet<>();
+                    int count = record.readInt();
+                    for (int i = 0; i < count; i++) {
+                        failed.add(record.readInt());
+                    }
+                    commits.put(batchId, failed);
+                } else if (type == MADE) {
+                    made.computeIfAbsent(batchId, id -> new HashSet<>()).add(record.readInt());
+                }
+            } catch (EOFException e) {
+                throw new IOException("Corrupt rename journal");
+            }
+            offset += 4 + length + 8;
+        }
+        return offset;
+    }
+
+    private static List<Entry> readEntries(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File source = new File(in.readUTF());
+            File target = new File(in.readUTF());
+            int changes = in.readInt();
+            ArrayList<String[]> history = new ArrayList<>();
+            for (int j = 0; j < changes; j++) {
+                history.add(new String[]{in.readUTF(), in.readUTF(), in.readUTF()});
+            }
+            entries.add(new Entry(source, target, history));
+        }
+        return entries;
+    }
+
+    /**
+     * Closes the journal file.
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+            channel = null;
+        }
+    }
+}
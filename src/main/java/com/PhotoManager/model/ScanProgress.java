@@ -0,0 +1,66 @@
+package com.PhotoManager.model;
+
+/**
+ * How far a scan of a Directory tree has got.
+ */
+public class ScanProgress {
+
+    private final long foldersVisited;
+    private final long imagesFound;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a ScanProgress.
+     *
+     * @param foldersVisited Number of folders listed so far
+     * @param imagesFound    Number of Images found so far
+     * @param elapsedMillis  Time since the scan started in milliseconds
+     */
+    public ScanProgress(long foldersVisited, long imagesFound, long elapsedMillis) {
+        this.foldersVisited = foldersVisited;
+        this.imagesFound = imagesFound;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Return the number of folders listed so far.
+     *
+     * @return Number of folders visited
+     */
+    public long getFoldersVisited() {
+        return foldersVisited;
+    }
+
+    /**
+     * Return the number of Images found so far.
+     *
+     * @return Number of Images found
+     */
+    public long getImagesFound() {
+        return imagesFound;
+    }
+
+    /**
+     * Return the time since the scan started.
+     *
+     * @return Elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Return the average number of Images found per second so far.
+     *
+     * @return Images found per second
+     */
+    public double getImagesPerSecond() {
+        return elapsedMillis == 0 ? 0 : imagesFound * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return foldersVisited + " folders, " + imagesFound + " images (" +
+                Math.round(getImagesPerSecond()) + " images/s)";
+    }
+}
@@ -0,0 +1,155 @@
+package com.PhotoManager.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes the listed state of a Directory tree, so the tree can be rebuilt by listing
+ * only the folders that changed since it was saved.
+ * <br>A snapshot is written in the format:
+ * <br>magic, version, root path, root node, CRC32 of everything before it
+ * <br>where a node is:
+ * <br>name, modification time, number of Images, (name, size, modification time) of each
+ * Image, number of sub-directories, node of each sub-directory
+ * <br>The tags of an Image are part of its name, so they are restored with it.
+ */
+class ScanSnapshot {
+
+    private static final int MAGIC = 0x504d534e;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Return the tree saved in snapshotFile if it is a valid snapshot of rootFilePath.
+     *
+     * @param snapshotFile File the snapshot is saved in
+     * @param rootFilePath FilePath to the root Directory in the OS's filesystem
+     * @return ScanNode of rootFilePath as it was saved
+     * @throws IOException If snapshotFile cannot be read, is corrupt or is of another root
+     */
+    static DirectoryScanner.ScanNode read(File snapshotFile, File rootFilePath)
+            throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(
+                new FileInputStream(snapshotFile), BUFFER_SIZE), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a scan snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported scan snapshot version " + version);
+            }
+            String rootPath = in.readUTF();
+            if (!rootPath.equals(DirectoryIndex.normalize(rootFilePath).toString())) {
+                throw new IOException("Scan snapshot of another root: " + rootPath);
+            }
+            in.readUTF();
+            DirectoryScanner.ScanNode root = readNode(in, rootFilePath);
+
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum || in.read() != -1) {
+                throw new IOException("Corrupt scan snapshot");
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Return the node of the directory at file and all of its sub-directories from in.
+     */
+    private static DirectoryScanner.ScanNode readNode(DataInputStream in, File file)
+            throws IOException {
+        DirectoryScanner.ScanNode node = new DirectoryScanner.ScanNode(file);
+        node.modified = in.readLong();
+        int images = readCount(in);
+        for (int i = 0; i < images; i++) {
+            File imageFile = new File(file, in.readUTF());
+            node.images.add(new DirectoryScanner.ImageEntry(imageFile, in.readLong(),
+                    in.readLong()));
+        }
+        int directories = readCount(in);
+        for (int i = 0; i < directories; i++) {
+            node.directories.add(readNode(in, new File(file, in.readUTF())));
+        }
+        return node;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt scan snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Saves the loaded part of the tree under root into snapshotFile, replacing it only once the
+     * new snapshot is completely written.
+     *
+     * @param snapshotFile File to save the snapshot in
+     * @param root         Root Directory of the tree
+     * @throws IOException If the snapshot cannot be written
+     */
+    static void write(File snapshotFile, Directory root) throws IOException {
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempFile), BUFFER_SIZE), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(root.getPath().toString());
+            writeNode(out, root, "");
+            out.writeLong(checked.getChecksum().getValue());
+        }
+
+        try {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the node of directory under name to out. A Directory that hasn't been listed is
+     * written without contents, so it is listed when the snapshot is used.
+     */
+    private static void writeNode(DataOutputStream out, Directory directory, String name)
+            throws IOException {
+        out.writeUTF(name);
+        if (!directory.isLoaded()) {
+            out.writeLong(DirectoryScanner.UNKNOWN_MODIFIED);
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+
+        out.writeLong(directory.getModified());
+        ArrayList<Image> images = directory.getImages();
+        out.writeInt(images.size());
+        for (Image image : images) {
+            out.writeUTF(image.getOSFilePath().getName());
+            out.writeLong(image.getFileSize());
+            out.writeLong(image.getLastModified());
+        }
+        ArrayList<Directory> directories = directory.getLoadedDirectories();
+        out.writeInt(directories.size());
+        for (Directory subDirectory : directories) {
+            writeNode(out, subDirectory, subDirectory.getDirectoryName());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lists every folder of a Directory tree that is still waiting to be listed, in the background.
+ * <br>Folders are listed in parallel on the DirectoryScanner's threads without touching the
+ * tree. Each listed sub-tree is then swapped into its waiting Directory on the model's thread,
+ * in the order the Directories appear in the tree, so the first folders fill in first.
+ * <br>A cancelled scan leaves the rest of the tree waiting, to be listed when first needed.
+ */
+public class ScanTask extends BackgroundTask<Directory, ScanProgress> {
+
+    private final ForkJoinPool pool;
+    private final Directory root;
+    private final ConfigManager config;
+    private final List<Directory> waitingDirectories = new ArrayList<>();
+    private final List<Directory> listedDirectories = new ArrayList<>();
+    private final AtomicLong foldersVisited = new AtomicLong();
+    private final AtomicLong imagesFound = new AtomicLong();
+    private volatile long startTime;
+
+    /**
+     * Constructs a ScanTask for the Directories under root that haven't been listed. Must be
+     * constructed on the model's thread.
+     *
+     * @param pool          ForkJoinPool to list folders on
+     * @param root          Root Directory of the tree
+     * @param config        ConfigManager holding the scan snapshot | null to not use it
+     * @param modelExecutor Executor that runs on the thread which owns the tree
+     */
+    ScanTask(ForkJoinPool pool, Directory root, ConfigManager config, Executor modelExecutor) {
+        super("directory-scan", modelExecutor);
+        this.pool = pool;
+        this.root = root;
+        this.config = config;
+        collectWaiting(root);
+    }
+
+    /**
+     * Adds the Directories under directory that haven't been listed to waitingDirectories, and
+     * the listed ones to listedDirectories counting them as visited.
+     */
+    private void collectWaiting(Directory directory) {
+        if (!directory.isLoaded()) {
+            waitingDirectories.add(directory);
+            return;
+        }
+        listedDirectories.add(directory);
+        foldersVisited.incrementAndGet();
+        imagesFound.addAndGet(directory.getImages().size());
+        for (Directory subDirectory : directory.getLoadedDirectories()) {
+            collectWaiting(subDirectory);
+        }
+    }
+
+    @Override
+    public ScanTask start() {
+        super.start();
+        return this;
+    }
+
+    @Override
+    protected Directory compute() {
+        startTime = System.nanoTime();
+        publish(getProgress());
+
+        HashMap<File, DirectoryScanner.ScanNode> snapshots = new HashMap<>();
+        if (config != null && !waitingDirectories.isEmpty()) {
+            DirectoryScanner.ScanNode snapshot = config.readSnapshot(root.getFile());
+            if (snapshot != null) {
+                indexSnapshot(snapshot, snapshots);
+            }
+        }
+
+        List<ForkJoinTask<DirectoryScanner.ScanNode>> listings = new ArrayList<>();
+        for (Directory directory : waitingDirectories) {
+            listings.add(pool.submit(new DirectoryScanner.ListingTask(directory.getFile(),
+                    snapshots.get(directory.getFile()), this)));
+        }
+        for (int i = 0; i < listings.size(); i++) {
+            checkCancelled();
+            DirectoryScanner.ScanNode node = listings.get(i).join();
+            if (node != null) {
+                Directory directory = waitingDirectories.get(i);
+                runOnModelThread(() -> directory.fill(node));
+            }
+        }
+        checkCancelled();
+        runOnModelThread(() -> {
+            for (Directory directory : listedDirectories) {
+                directory.setScanned();
+            }
+        });
+        publish(getProgress());
+        return root;
+    }
+
+    /**
+     * Adds node and every sub-directory node under it to snapshots, keyed by their file.
+     */
+    private static void indexSnapshot(DirectoryScanner.ScanNode node,
+                                      HashMap<File, DirectoryScanner.ScanNode> snapshots) {
+        snapshots.put(node.file, node);
+        for (DirectoryScanner.ScanNode child : node.directories) {
+            indexSnapshot(child, snapshots);
+        }
+    }
+
+    /**
+     * Records that a folder with images Images has been listed.
+     *
+     * @param images Number of Images directly in the folder
+     */
+    void folderVisited(int images) {
+        foldersVisited.incrementAndGet();
+        imagesFound.addAndGet(images);
+        publish(getProgress());
+    }
+
+    /**
+     * Return how far this scan has got.
+     *
+     * @return Current ScanProgress
+     */
+    public ScanProgress getProgress() {
+        long elapsed = startTime == 0 ? 0 : (System.nanoTime() - startTime) / 1000000;
+        return new ScanProgress(foldersVisited.get(), imagesFound.get(), elapsed);
+    }
+}
@@ -0,0 +1,169 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the tags of the Images in a folder in a sidecar file in that folder, so tagging never
+ * renames an Image.
+ * <br>The sidecar file has a line per tagged Image in the format:
+ * <br>imageName/tag1/tag2..
+ * <br>as neither names nor tags can contain '/'. A folder's sidecar is read once, when the
+ * tags of its first Image are read, and written whole by flush, so a batch that tags many
+ * Images in a folder writes it once.
+ */
+public class SidecarTagStore implements TagStore {
+
+    public static final String NAME = "sidecar";
+    static final String SIDECAR_NAME = ".photomanager-tags";
+
+    /**
+     * Sidecar of each folder read so far, keyed by the folder's absolute file path.
+     */
+    private final ConcurrentHashMap<File, Sidecar> sidecars = new ConcurrentHashMap<>();
+    private static Logger logger = Logger.getLogger(SidecarTagStore.class.getName());
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isInName() {
+        return false;
+    }
+
+    @Override
+    public Set<String> readTags(File file) {
+        Sidecar sidecar = getSidecar(file);
+        synchronized (sidecar) {
+            Set<String> tags = sidecar.tags.get(file.getName());
+            return tags == null ? new LinkedHashSet<>() : new LinkedHashSet<>(tags);
+        }
+    }
+
+    @Override
+    public void writeTags(File file, Set<String> tags) {
+        if (tags.isEmpty()) {
+            removeTags(file);
+            return;
+        }
+        Sidecar sidecar = getSidecar(file);
+        synchronized (sidecar) {
+            sidecar.tags.put(file.getName(), new LinkedHashSet<>(tags));
+            sidecar.dirty = true;
+        }
+    }
+
+    @Override
+    public void removeTags(File file) {
+        Sidecar sidecar = getSidecar(file);
+        synchronized (sidecar) {
+            if (sidecar.tags.remove(file.getName()) != null) {
+                sidecar.dirty = true;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        IOException failure = null;
+        for (Sidecar sidecar : sidecars.values()) {
+            synchronized (sidecar) {
+                if (!sidecar.dirty) {
+                    continue;
+                }
+                try {
+                    sidecar.write();
+                    sidecar.dirty = false;
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public boolean isFlushed(File file) {
+        Sidecar sidecar = sidecars.get(file.getAbsoluteFile().getParentFile());
+        if (sidecar == null) {
+            return true;
+        }
+        synchronized (sidecar) {
+            return !sidecar.dirty;
+        }
+    }
+
+    /**
+     * Return the Sidecar of the folder file is in, reading it if it hasn't been read yet.
+     */
+    private Sidecar getSidecar(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        return sidecars.computeIfAbsent(directory, Sidecar::new);
+    }
+
+    /**
+     * The tags of the Images in one folder.
+     */
+    private static class Sidecar {
+        final File file;
+        final LinkedHashMap<String, Set<String>> tags = new LinkedHashMap<>();
+        boolean dirty;
+
+        Sidecar(File directory) {
+            file = new File(directory, SIDECAR_NAME);
+            try {
+                for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                    String[] elements = line.split("/");
+                    if (elements.length > 1) {
+                        Set<String> imageTags = new LinkedHashSet<>();
+                        for (int i = 1; i < elements.length; i++) {
+                            imageTags.add(elements[i]);
+                        }
+                        tags.put(elements[0], imageTags);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // No tags in this folder yet
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot read tags of " + directory + ": " + e);
+                logger.addHandler(new ConsoleHandler());
+            }
+        }
+
+        /**
+         * Replaces the sidecar file with the tags, or deletes it if no Image has tags.
+         */
+        void write() throws IOException {
+            if (tags.isEmpty()) {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+            List<String> lines = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : tags.entrySet()) {
+                lines.add(entry.getKey() + "/" + String.join("/", entry.getValue()));
+            }
+            File temp = new File(file.getParentFile(), SIDECAR_NAME + ".tmp");
+            Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
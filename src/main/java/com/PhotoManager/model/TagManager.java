@@ -46,6 +46,21 @@ public class TagManager {
         return availableTags;
     }
 
+    /**
+     * Checks that tag has no invalid character, without adding it.
+     *
+     * @param tag Tag to check
+     * @throws IllegalArgumentException Throw if illegal character is inputted
+     */
+    public void checkTag(String tag) {
+        for (String invalidCharacter : INVALID_CHARACTERS) {
+            if (tag.contains(invalidCharacter)) {
+                // Invalid characters
+                throw new IllegalArgumentException("Illegal Input");
+            }
+        }
+    }
+
     /**
      * Return true if tag was successfully added or if it's no longer hidden; false otherwise.
      *
@@ -55,12 +70,7 @@ public class TagManager {
      */
     public boolean addTagToAvailableTags(String tag) {
         if (!availableTags.containsKey(tag)) {
-            for (String invalidCharacter : INVALID_CHARACTERS) {
-                if (tag.contains(invalidCharacter)) {
-                    // Invalid characters
-                    throw new IllegalArgumentException("Illegal Input");
-                }
-            }
+            checkTag(tag);
             availableTags.put(tag, new HashSet<>());
             return true;
 
@@ -89,6 +99,45 @@ public class TagManager {
         }
     }
 
+    /**
+     * Return true if no Image has tag and it was removed from availableTags; false otherwise.
+     *
+     * @param tag Tag to remove from availableTags
+     * @return Whether or not tag was removed
+     */
+    public boolean removeUnusedTag(String tag) {
+        HashSet<Image> images = availableTags.get(tag);
+        if (images != null && images.isEmpty()) {
+            availableTags.remove(tag);
+            tagsToNotShow.remove(tag);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records img under exactly the tags it has, after its tags were changed without this
+     * TagManager. Tags it no longer has stay available. Tags with an illegal character are
+     * ignored.
+     *
+     * @param img Image whose tags changed
+     */
+    public void retagImage(Image img) {
+        HashSet<String> imageTags = img.getTags();
+        for (Map.Entry<String, HashSet<Image>> entry : availableTags.entrySet()) {
+            if (!imageTags.contains(entry.getKey())) {
+                entry.getValue().remove(img);
+            }
+        }
+        for (String tag : imageTags) {
+            try {
+                addTagToImage(img, tag);
+            } catch (IllegalArgumentException e) {
+                // Ignore tag
+            }
+        }
+    }
+
     /**
      * Return true if successfully added tag to img and availableTags, throws
      * IllegalArgumentException if tag contains an illegal character; false otherwise.
@@ -125,14 +174,26 @@ public class TagManager {
      * @return True if tag is successfully removed from img
      */
     public boolean removeTagFromImage(Image img, String tag) {
-        if (availableTags.containsKey(tag) && availableTags.get(tag).contains(img)) {
-            availableTags.get(tag).remove(img);
+        if (untagImage(img, tag)) {
             img.removeTag(tag);
             return true;
         }
         return false;
     }
 
+    /**
+     * Return true if img was recorded as having tag and no longer is; false otherwise.
+     * <br>Leaves img's name unchanged, for callers that rename it themselves.
+     *
+     * @param img Image to stop recording under tag
+     * @param tag Tag img is recorded under
+     * @return True if img was recorded under tag
+     */
+    public boolean untagImage(Image img, String tag) {
+        HashSet<Image> images = availableTags.get(tag);
+        return images != null && images.remove(img);
+    }
+
     /**
      * Return HashSet&lt;Image&gt; of all Images that contain tag.
      *
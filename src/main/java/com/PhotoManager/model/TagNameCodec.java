@@ -0,0 +1,267 @@
+package com.PhotoManager.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses and formats the tags at the end of Image names, as in "Tim @family @beach.jpg".
+ * <br>Names are parsed in one pass over their characters, without splitting or trimming
+ * copies. Tag Strings are interned in a concurrent table shared by every thread, so the same
+ * tag in many names is one String, and threads listing folders in parallel don't wait for
+ * each other to parse. Tags are looked up in the table by the characters of the name, so
+ * parsing a name whose tags were seen before creates no String.
+ */
+public final class TagNameCodec {
+
+    private static final String[] NO_TAGS = new String[0];
+    /**
+     * Most tags interned; tags after that are still parsed, just not shared.
+     */
+    private static final int MAX_INTERNED = 1 << 16;
+
+    private static final ConcurrentHashMap<String, String> INTERNED =
+            new ConcurrentHashMap<>(256);
+    /**
+     * Key each thread looks tags up in INTERNED with.
+     */
+    private static final ThreadLocal<Region> KEYS = ThreadLocal.withInitial(Region::new);
+
+    private TagNameCodec() {
+    }
+
+    /**
+     * Return the tags at the end of imageName, in the order they appear.
+     * <br>ie. for Tim @family @beach.jpg -&gt; returns [family, beach].
+     *
+     * @param imageName Name of an Image
+     * @return Tags in imageName, empty if it has none
+     */
+    public static String[] parseTags(String imageName) {
+        int end = baseEnd(imageName);
+        int start = imageName.indexOf('@');
+        if (start == -1 || start >= end) {
+            return NO_TAGS;
+        }
+        List<String> tags = new ArrayList<>(4);
+        while (start < end) {
+            int tagEnd = imageName.indexOf('@', start + 1);
+            if (tagEnd == -1 || tagEnd > end) {
+                tagEnd = end;
+            }
+            // Trimmed like String.trim
+            int from = start + 1;
+            int to = tagEnd;
+            while (from < to && imageName.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && imageName.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                tags.add(intern(imageName, from, to));
+            }
+            start = tagEnd;
+        }
+        return tags.toArray(NO_TAGS);
+    }
+
+    /**
+     * Adds the tags at the end of imageName to tags.
+     *
+     * @param imageName Name of an Image
+     * @param tags      Collection to add the tags to
+     */
+    public static void parseTags(String imageName, Collection<String> tags) {
+        for (String tag : parseTags(imageName)) {
+            tags.add(tag);
+        }
+    }
+
+    /**
+     * Return imageName without the tags at the end of it.
+     * <br>ie. for Tim @family @beach.jpg -&gt; returns Tim.jpg.
+     *
+     * @param imageName Name of an Image
+     * @return Name of the Image without tags
+     */
+    public static String untaggedName(String imageName) {
+        int end = baseEnd(imageName);
+        int tagsStart = imageName.indexOf('@');
+        if (tagsStart == -1 || tagsStart >= end) {
+            return imageName;
+        }
+        while (tagsStart > 0 && imageName.charAt(tagsStart - 1) == ' ') {
+            tagsStart--;
+        }
+        return imageName.substring(0, tagsStart) + imageName.substring(end);
+    }
+
+    /**
+     * Return imageName with exactly the tags in tags at the end of it, in their order.
+     *
+     * @param imageName Name of an Image, with or without tags
+     * @param tags      Tags to put in the name
+     * @return Name of the Image with tags
+     */
+    public static String taggedName(String imageName, Collection<String> tags) {
+        String untagged = untaggedName(imageName);
+        int end = baseEnd(untagged);
+        StringBuilder name = new StringBuilder(untagged.length() + 16 * tags.size());
+        name.append(untagged, 0, end);
+        for (String tag : tags) {
+            name.append(" @").append(tag);
+        }
+        return name.append(untagged, end, untagged.length()).toString();
+    }
+
+    /**
+     * Return imageName with the tags in remove taken out of it and the tags in add put at the
+     * end of it, in one copy of the name.
+     *
+     * @param imageName Name of an Image
+     * @param remove    Tags to remove from the name where they are whole tags
+     * @param add       Tags to add to the end of the name
+     * @return New name of the Image, imageName itself if nothing changed
+     */
+    public static String changeTags(String imageName, Collection<String> remove,
+                                    Collection<String> add) {
+        int end = baseEnd(imageName);
+        StringBuilder baseName = null;
+        for (String tag : remove) {
+            int indexOfElement = baseName == null ? indexOfTag(imageName, end, tag) :
+                    indexOfTag(baseName, baseName.length(), tag);
+            if (indexOfElement != -1) {
+                if (baseName == null) {
+                    baseName = new StringBuilder(imageName.length() + 16 * add.size());
+                    baseName.append(imageName, 0, end);
+                }
+                baseName.delete(indexOfElement, indexOfElement + tag.length() + 2);
+            }
+        }
+        if (baseName == null) {
+            if (add.isEmpty()) {
+                return imageName;
+            }
+            baseName = new StringBuilder(imageName.length() + 16 * add.size());
+            baseName.append(imageName, 0, end);
+        }
+        for (String tag : add) {
+            baseName.append(" @").append(tag);
+        }
+        return baseName.append(imageName, end, imageName.length()).toString();
+    }
+
+    /**
+     * Return the index of " @tag" in the first length characters of baseName where it isn't
+     * the start of a longer tag.
+     *
+     * @param baseName Image name
+     * @param length   Length of the name without its extension
+     * @param tag      Tag to look for
+     * @return Index of the tag | -1
+     */
+    static int indexOfTag(CharSequence baseName, int length, String tag) {
+        int elementLength = tag.length() + 2;
+        for (int index = 0; index + elementLength <= length; index++) {
+            if (baseName.charAt(index) != ' ' || baseName.charAt(index + 1) != '@' ||
+                    !regionMatches(baseName, index + 2, tag)) {
+                continue;
+            }
+            int end = index + elementLength;
+            if (end == length || baseName.charAt(end) == ' ' || baseName.charAt(end) == '@') {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, String part) {
+        for (int i = 0; i < part.length(); i++) {
+            if (text.charAt(offset + i) != part.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the index where the extension of imageName starts, or its length if it has none.
+     */
+    private static int baseEnd(String imageName) {
+        int extension = imageName.lastIndexOf('.');
+        return extension == -1 ? imageName.length() : extension;
+    }
+
+    /**
+     * Return the shared String equal to name[start, end), adding it to the intern table if it
+     * isn't in it.
+     */
+    private static String intern(String name, int start, int end) {
+        String shared = INTERNED.get(KEYS.get().of(name, start, end));
+        if (shared != null) {
+            return shared;
+        }
+        String tag = name.substring(start, end);
+        if (INTERNED.size() < MAX_INTERNED) {
+            shared = INTERNED.putIfAbsent(tag, tag);
+        }
+        return shared != null ? shared : tag;
+    }
+
+    /**
+     * The characters of a name between two indexes, equal to the String of the same
+     * characters and with the same hash code, so tags are looked up without copying them.
+     */
+    private static final class Region implements CharSequence {
+        private String name;
+        private int start;
+        private int end;
+
+        Region of(String name, int start, int end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return name.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return name.substring(start + from, start + to);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + name.charAt(i);
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof String)) {
+                return false;
+            }
+            String tag = (String) other;
+            return tag.length() == length() && name.regionMatches(start, tag, 0, length());
+        }
+
+        @Override
+        public String toString() {
+            return name.substring(start, end);
+        }
+    }
+}
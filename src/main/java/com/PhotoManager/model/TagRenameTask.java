@@ -0,0 +1,174 @@
+package com.PhotoManager.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Renames tags, or merges several into one, on every Image that has them, in the background.
+ * <br>The Images are taken from the TagManager's sets of Images per tag, so nothing is listed
+ * or searched. They are retagged in chunks: each chunk gets its new names and history entries
+ * on the model's thread, then is renamed in the OS's filesystem as one parallel batch by the
+ * RenameExecutor. Progress is reported after each chunk.
+ * <br>A cancelled job stops between chunks. The Images done so far keep the new tag and the
+ * others the old ones, so the job can be run again to finish.
+ */
+public class TagRenameTask extends BackgroundTask<RenameExecutor.BatchResult, MoveProgress> {
+
+    /**
+     * Images retagged and renamed per batch.
+     */
+    static final int CHUNK_SIZE = 2000;
+
+    private final Collection<String> tags;
+    private final String into;
+    private final TagManager tagManager;
+    private final RenameExecutor renamer;
+    private final Directory root;
+    private final BiConsumer<Image, String> history;
+    private final Executor modelExecutor;
+    private final List<Image> images = new ArrayList<>();
+    private volatile long startTime;
+
+    /**
+     * Constructs a TagRenameTask that gives every Image tagged with one of tags the tag into
+     * instead. Must be constructed on the model's thread.
+     *
+     * @param tags          Tags to rename
+     * @param into          Tag to rename them to, which may already be a tag
+     * @param tagManager    TagManager recording the tags of the Images under root
+     * @param renamer       RenameExecutor that renames the Images
+     * @param root          Root Directory of the tree
+     * @param history       Told each renamed Image and its name before the job
+     * @param modelExecutor Executor that runs on the thread which owns the tree
+     */
+    public TagRenameTask(Collection<String> tags, String into, TagManager tagManager,
+                         RenameExecutor renamer, Directory root,
+                         BiConsumer<Image, String> history, Executor modelExecutor) {
+        super("tag-rename", modelExecutor);
+        this.tags = new LinkedHashSet<>(tags);
+        this.tags.remove(into);
+        this.into = into;
+        this.tagManager = tagManager;
+        this.renamer = renamer;
+        this.root = root;
+        this.history = history;
+        this.modelExecutor = modelExecutor;
+        LinkedHashSet<Image> tagged = new LinkedHashSet<>();
+        for (String tag : this.tags) {
+            HashSet<Image> imagesWithTag = tagManager.getImagesByTag(tag);
+            if (imagesWithTag != null) {
+                tagged.addAll(imagesWithTag);
+            }
+        }
+        images.addAll(tagged);
+    }
+
+    @Override
+    public TagRenameTask start() {
+        super.start();
+        return this;
+    }
+
+    @Override
+    protected RenameExecutor.BatchResult compute() {
+        startTime = System.nanoTime();
+        publish(getProgress(0));
+        int renamed = 0;
+        int tagged = 0;
+        int directoriesUpdated = 0;
+        List<RenameExecutor.Failure> failures = new ArrayList<>();
+        for (int start = 0; start < images.size(); start += CHUNK_SIZE) {
+            checkCancelled();
+            List<Image> chunk = images.subList(start, Math.min(start + CHUNK_SIZE,
+                    images.size()));
+            // Images that fail to rename are indexed under the tags they kept by the renamer's
+            // revert listeners
+            RenameExecutor.BatchResult result = onModelThread(() -> {
+                retag(chunk);
+                return renamer.flushAsync(root, modelExecutor);
+            }).join();
+            renamed += result.getRenamed();
+            tagged += result.getTagged();
+            directoriesUpdated += result.getDirectoriesUpdated();
+            failures.addAll(result.getFailures());
+            publish(getProgress(start + chunk.size()));
+        }
+        checkCancelled();
+        onModelThread(() -> {
+            for (String tag : tags) {
+                tagManager.removeUnusedTag(tag);
+            }
+            return CompletableFuture.completedFuture(null);
+        }).join();
+        return new RenameExecutor.BatchResult(renamed, tagged, failures, directoriesUpdated,
+                (System.nanoTime() - startTime) / 1000000);
+    }
+
+    /**
+     * Gives each Image of chunk the tag into instead of the tags, on the model's thread. Images
+     * whose tags changed since the job started are left as they are.
+     */
+    private void retag(List<Image> chunk) {
+        for (Image image : chunk) {
+            HashSet<String> removed = new HashSet<>();
+            for (String tag : tags) {
+                if (tagManager.untagImage(image, tag)) {
+                    removed.add(tag);
+                }
+            }
+            if (removed.isEmpty()) {
+                continue;
+            }
+            Set<String> added = tagManager.addTagToImage(image, into) ?
+                    Collections.singleton(into) : Collections.emptySet();
+            String oldName = image.getImageName();
+            if (image.changeTags(added, removed)) {
+                history.accept(image, oldName);
+            }
+        }
+    }
+
+    /**
+     * Return the result of the future started by action on the model's thread.
+     */
+    private <T> CompletableFuture<T> onModelThread(Supplier<CompletableFuture<T>> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runOnModelThread(() -> {
+            try {
+                action.get().whenComplete((value, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Return the number of Images the job changes.
+     *
+     * @return Number of Images with one of the tags when the job was constructed
+     */
+    public int getTotal() {
+        return images.size();
+    }
+
+    private MoveProgress getProgress(int done) {
+        return new MoveProgress(done, images.size(), 0,
+                (System.nanoTime() - startTime) / 1000000);
+    }
+}
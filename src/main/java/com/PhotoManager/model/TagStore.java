@@ -0,0 +1,103 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Where the tags of Images are kept in the OS's filesystem.
+ * <br>A TagStore that keeps tags in the Image's name changes them with a rename. The others
+ * keep tags beside the name, so tagging an Image never renames it. Their writes are made by
+ * the RenameExecutor along with the renames, on its threads, so they must be thread safe.
+ */
+public interface TagStore {
+
+    /**
+     * Return the name this TagStore is chosen by.
+     *
+     * @return One of FilenameTagStore.NAME, XattrTagStore.NAME or SidecarTagStore.NAME
+     */
+    String getName();
+
+    /**
+     * Return whether tags are kept in the Image's name, so changing them renames the Image.
+     *
+     * @return true if the Image's name holds its tags
+     */
+    boolean isInName();
+
+    /**
+     * Return whether this TagStore can keep tags of the Images in directory.
+     *
+     * @param directory Folder in the OS's filesystem
+     * @return true if tags can be written there
+     */
+    default boolean isSupported(File directory) {
+        return true;
+    }
+
+    /**
+     * Return the tags kept for the Image file at file, in the order they were added.
+     *
+     * @param file File path of an Image in the OS's filesystem
+     * @return Tags of the Image, empty if it has none or they cannot be read
+     */
+    Set<String> readTags(File file);
+
+    /**
+     * Replaces the tags kept for the Image file at file with tags.
+     *
+     * @param file File path of an Image in the OS's filesystem
+     * @param tags Tags of the Image
+     * @throws IOException If the tags cannot be written
+     */
+    void writeTags(File file, Set<String> tags) throws IOException;
+
+    /**
+     * Forgets the tags kept for the Image file at file, if any.
+     *
+     * @param file File path an Image is or was at in the OS's filesystem
+     * @throws IOException If the tags cannot be removed
+     */
+    void removeTags(File file) throws IOException;
+
+    /**
+     * Writes out the tags written or removed since the last flush, for TagStores that hold
+     * them back to write them together.
+     *
+     * @throws IOException If some tags cannot be written; they are written by the next flush
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Return whether the tags written or removed for the Image file at file were written out,
+     * for TagStores that hold them back until flush.
+     *
+     * @param file File path an Image is or was at in the OS's filesystem
+     * @return false if they are still held back because the last flush couldn't write them
+     */
+    default boolean isFlushed(File file) {
+        return true;
+    }
+
+    /**
+     * Return a new TagStore of the kind called name.
+     *
+     * @param name Name of a TagStore
+     * @return TagStore called name
+     * @throws IllegalArgumentException If there is no TagStore called name
+     */
+    static TagStore forName(String name) {
+        switch (name) {
+            case FilenameTagStore.NAME:
+                return new FilenameTagStore();
+            case XattrTagStore.NAME:
+                return new XattrTagStore();
+            case SidecarTagStore.NAME:
+                return new SidecarTagStore();
+            default:
+                throw new IllegalArgumentException("Unknown tag store: " + name);
+        }
+    }
+}
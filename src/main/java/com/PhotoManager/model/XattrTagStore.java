@@ -0,0 +1,99 @@
+package com.PhotoManager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Keeps the tags of an Image in a user-defined extended attribute of its file, so tagging
+ * never renames it and the tags follow the file when it is renamed by any program.
+ * <br>The attribute holds the tags in UTF-8, one per line. Filesystems without extended
+ * attributes aren't supported.
+ */
+public class XattrTagStore implements TagStore {
+
+    public static final String NAME = "xattr";
+    private static final String ATTRIBUTE = "photomanager.tags";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isInName() {
+        return false;
+    }
+
+    @Override
+    public boolean isSupported(File directory) {
+        try {
+            return Files.getFileStore(directory.toPath())
+                    .supportsFileAttributeView(UserDefinedFileAttributeView.class);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Set<String> readTags(File file) {
+        Set<String> tags = new LinkedHashSet<>();
+        UserDefinedFileAttributeView view = getView(file.toPath());
+        if (view == null) {
+            return tags;
+        }
+        ByteBuffer value;
+        try {
+            value = ByteBuffer.allocate(view.size(ATTRIBUTE));
+            view.read(ATTRIBUTE, value);
+        } catch (IOException e) {
+            // No tags
+            return tags;
+        }
+        String lines = new String(value.array(), 0, value.position(), StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < lines.length()) {
+            int end = lines.indexOf('\n', start);
+            if (end == -1) {
+                end = lines.length();
+            }
+            if (end > start) {
+                tags.add(lines.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return tags;
+    }
+
+    @Override
+    public void writeTags(File file, Set<String> tags) throws IOException {
+        if (tags.isEmpty()) {
+            removeTags(file);
+            return;
+        }
+        UserDefinedFileAttributeView view = getView(file.toPath());
+        if (view == null) {
+            throw new IOException("Extended attributes are not supported for " + file);
+        }
+        view.write(ATTRIBUTE, StandardCharsets.UTF_8.encode(String.join("\n", tags)));
+    }
+
+    @Override
+    public void removeTags(File file) throws IOException {
+        Path path = file.toPath();
+        UserDefinedFileAttributeView view = getView(path);
+        if (view != null && Files.exists(path) && view.list().contains(ATTRIBUTE)) {
+            view.delete(ATTRIBUTE);
+        }
+    }
+
+    private static UserDefinedFileAttributeView getView(Path path) {
+        return Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+    }
+}
@@ -3,6 +3,8 @@ package com.PhotoManager.view;
 import com.PhotoManager.GUInterface;
 import com.PhotoManager.model.Directory;
 import com.PhotoManager.model.Image;
+import com.PhotoManager.model.MoveSummary;
+import javafx.application.Platform;
 import javafx.scene.text.Text;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
@@ -19,9 +21,12 @@ import javafx.stage.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 public class DirectoryMenuController {
     private GUInterface mainApp;
@@ -184,9 +189,14 @@ public class DirectoryMenuController {
                 }
         )) {
 
+            boolean reRoot = curDirectory.getParentDirectory() == null;
             if (mainApp.getController().goUpDirectory()) {
                 mainApp.showDirectoryMenu(curDirectory.getParentDirectory());
-                mainApp.getController().updateConfig();
+                if (reRoot) {
+                    // List the new root's other folders without blocking the menu
+                    mainApp.showScanProgress(
+                            mainApp.getController().scanInBackground(Platform::runLater));
+                }
             } else {
                 mainApp.showAlertError(new String[]{
                                 "Error", "Cannot move root directory", "You have reached the root of the drive!"
@@ -210,12 +220,13 @@ public class DirectoryMenuController {
     @FXML
     public void handleMove() {
         if (lvImages.getSelectionModel().getSelectedItem() != null) {
-            Image image = lvImages.getSelectionModel().getSelectedItem();
+            List<Image> images = new ArrayList<>(lvImages.getSelectionModel().getSelectedItems());
 
             // Make a pop up box to prompt the user for a path
             VBox popUpVBox = new VBox();
             Label lblMessage = new Label();
-            lblMessage.setText("Enter a path to move this file to:");
+            lblMessage.setText(images.size() == 1 ? "Enter a path to move this file to:" :
+                    "Enter a path to move these " + images.size() + " files to:");
             HBox boxPath = new HBox();
             TextField txtPath = new TextField();
             Button btnPath = new Button();
@@ -252,25 +263,32 @@ public class DirectoryMenuController {
                 }
             });
 
-            // If the user presses the move button, move the file
+            // If the user presses the move button, move the files
             btnMove.setOnAction((ActionEvent event) -> {
                 String path = txtPath.getText();
-                logger.log(Level.FINE, image.getFilePath().getAbsolutePath());
+                logger.log(Level.FINE, images.size() + " files to " + path);
                 logger.addHandler(new ConsoleHandler());
-                boolean moved = mainApp.getController().moveFileToDirectory(new File(path), image.getFilePath());
-                if (moved) {
-                    popupStage.hide();
-
-                    //handleBack();
-                    Directory targetDir = mainApp.getController().search(new File(path));
-                    mainApp.getController().setCurrentDirectory(targetDir);
-                    mainApp.showDirectoryMenu(targetDir);
-                    mainApp.getController().setCurrentDirectory(curDirectory);
-                    mainApp.showDirectoryMenu(curDirectory);
-                } else {
+                Directory targetDir = mainApp.getController().search(new File(path));
+                if (targetDir == null) {
                     lblMessage.setText("Try a different path...");
                     txtPath.setText("");
+                    return;
                 }
+                btnMove.setDisable(true);
+                mainApp.getController().moveImages(images, targetDir)
+                        .whenCompleteAsync((summary, e) -> {
+                            btnMove.setDisable(false);
+                            if (e == null && summary.count(MoveSummary.Outcome.MOVED) > 0) {
+                                mainApp.showDirectoryMenu(curDirectory);
+                            }
+                            if (e == null && summary.isComplete()) {
+                                popupStage.hide();
+                            } else {
+                                lblMessage.setText(e == null ? summary.toString() +
+                                        ". Try a different path..." : "Try a different path...");
+                                txtPath.setText("");
+                            }
+                        }, Platform::runLater);
             });
 
             btnCancel.setOnAction(event -> popupStage.hide());
@@ -318,9 +336,11 @@ public class DirectoryMenuController {
     @FXML
     public void handleShowAll() {
         if (curDirectory != null) {
-            logger.log(Level.FINE, curDirectory.getImagesInSubDirectories().toString());
+            ObservableList<Image> images = curDirectory.streamImagesInSubDirectories()
+                    .collect(Collectors.toCollection(FXCollections::observableArrayList));
+            logger.log(Level.FINE, images::toString);
             logger.addHandler(new ConsoleHandler());
-            lvImages.setItems(FXCollections.observableArrayList(curDirectory.getImagesInSubDirectories()));
+            lvImages.setItems(images);
         }
     }
 
@@ -3,6 +3,7 @@ package com.PhotoManager.view;
 import com.PhotoManager.GUInterface;
 import com.PhotoManager.model.Directory;
 import com.PhotoManager.model.Image;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
@@ -99,14 +100,15 @@ public class ImageMenuController {
         image = newImage;
         txtNewTag.setText("");
 
-        displayImage();
+        if (image != null && !image.getOSFilePath().equals(image.getFilePath())) {
+            // Show the Image once its pending rename is done
+            imageView = new ImageView();
+            mainApp.getController().commit().whenComplete((result, failure) ->
+                    Platform.runLater(this::displayImage));
+        } else {
+            displayImage();
+        }
         if (image != null) {
-            if (!image.getOSFilePath().equals(image.getFilePath())) {
-                logger.log(Level.FINE, Boolean.toString(image.getOSFilePath().equals(image.getFilePath())));
-                logger.addHandler(new ConsoleHandler());
-
-                refreshImage();
-            }
             displayAddedTags();
             displaySuggestedTag();
         }
@@ -159,6 +161,17 @@ public class ImageMenuController {
         });
     }
 
+    /**
+     * Displays the tags again after they changed, without reloading the menu, and starts
+     * committing the change.
+     */
+    void refreshTags() {
+        lvTags.getItems().clear();
+        displayTags();
+        displayAddedTags();
+        mainApp.getController().commit();
+    }
+
     /**
      * Displays the suggested tag for this image at the top of lvTags.
      */
@@ -217,8 +230,9 @@ public class ImageMenuController {
             mainApp.showAlertInformation(new String[]{
                     "Tag Removed", "Tag Successfully Removed", "The tag " + tag + " has been removed from this image. "
             });
-            handleBack();
-            mainApp.showImageMenu(image);
+            refreshTags();
+            displaySuggestedTag();
+            getLblPath().setText(image.getFilePath().getAbsolutePath());
         } else {
             mainApp.showAlertError(new String[]{
                     "Tag Remove Failed", "Tag Failed to be Removed", "The tag " + tag + " cannot be removed. Try another tag."
@@ -254,8 +268,9 @@ public class ImageMenuController {
 
                 txtNewTag.setText("");
 
-                handleBack();
-                mainApp.showImageMenu(image);
+                refreshTags();
+                displaySuggestedTag();
+                getLblPath().setText(image.getFilePath().getAbsolutePath());
             } else {
                 mainApp.showAlertError(new String[]{
                         "Error", "Tag Failed to Add", "The tag " + newTag + " cannot be added. Try another tag."
@@ -334,12 +349,12 @@ public class ImageMenuController {
         btnMove.setOnAction(event -> {
             String path = txtPath.getText();
             Directory curDirectory = image.getCurrentDirectory();
-            boolean moved = mainApp.getController().moveFileToDirectory(new File(path), image.getFilePath());
+            Directory targetDir = mainApp.getController().search(new File(path));
+            boolean moved = mainApp.getController().moveFileToDirectory(targetDir, image.getFilePath());
             if (moved) {
                 popupStage.hide();
 
                 // Go back to the Directory
-                Directory targetDir = mainApp.getController().search(new File(path));
                 handleBack();
                 mainApp.getController().setCurrentDirectory(targetDir);
                 mainApp.showDirectoryMenu(targetDir);
@@ -365,16 +380,6 @@ public class ImageMenuController {
         mainApp.showDirectoryMenu(mainApp.getController().getCurrentDirectory());
     }
 
-    /**
-     * Refreshes the attributes of the image after a change.
-     */
-    private void refreshImage() {
-        imageView.setImage(null);
-        System.gc();
-        mainApp.showDirectoryMenu(mainApp.getController().getCurrentDirectory());
-        mainApp.showImageMenu(image);
-    }
-
     /**
      * Handles functionality for the History button press.
      */
@@ -7,6 +7,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
@@ -96,12 +97,8 @@ public class MultipleImageMenuController extends ImageMenuController {
      */
     @Override
     protected void addTag(String newTag) {
-        boolean added = true;
-        for (Image image : listOfImages) {
-            if (!mainApp.getController().addTag(image, newTag)) {
-                added = false;
-            }
-        }
+        boolean added = mainApp.getController().applyTagChanges(listOfImages,
+                Collections.singleton(newTag), Collections.emptySet()) == listOfImages.size();
 
         if (added) {
             mainApp.showAlertInformation(new String[]{
@@ -110,8 +107,8 @@ public class MultipleImageMenuController extends ImageMenuController {
 
             getTxtNewTag().setText("");
 
-            handleBack();
-            mainApp.showMultipleImageMenu(listOfImages);
+            refreshTags();
+            lvImages.refresh();
         } else {
             mainApp.showAlertError(new String[]{
                     "Error", "Tag Failed to Add", "The tag " + newTag + " cannot be added to some images. Try another tag."
@@ -128,18 +125,14 @@ public class MultipleImageMenuController extends ImageMenuController {
      */
     @Override
     protected void removeTag(String tag) {
-        boolean removed = true;
-        for (Image image : listOfImages) {
-            if (!mainApp.getController().removeTag(tag, image)) {
-                removed = false;
-            }
-        }
+        boolean removed = mainApp.getController().applyTagChanges(listOfImages,
+                Collections.emptySet(), Collections.singleton(tag)) == listOfImages.size();
         if (removed) {
             mainApp.showAlertInformation(new String[]{
                     "Tag Removed", "Tag Successfully Removed", "The tag " + tag + " has been removed from all image. "
             });
-            handleBack();
-            mainApp.showMultipleImageMenu(listOfImages);
+            refreshTags();
+            lvImages.refresh();
         } else {
             mainApp.showAlertError(new String[]{
                     "Tag Remove Failed", "Tag Failed to be Removed", "The tag " + tag + " cannot be removed from some images. Try another tag."
@@ -2,6 +2,8 @@ package com.PhotoManager.view;
 
 import com.PhotoManager.Controller;
 import com.PhotoManager.GUInterface;
+import com.PhotoManager.model.DirectoryScanner;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
@@ -55,9 +57,13 @@ public class StartupMenuController {
         assert !txtPath.getText().equals("");
         File rootFile = new File(txtPath.getText());
         if (rootFile.exists()) {
-            Controller controller = new Controller(rootFile);
+            // Only list the root here and scan the rest in the background
+            Controller controller = new Controller(rootFile, new DirectoryScanner(
+                    Runtime.getRuntime().availableProcessors(), true));
+            controller.startWriteBehind(Platform::runLater);
             mainApp.setController(controller);
             mainApp.showDirectoryMenu(controller.getCurrentDirectory());
+            mainApp.showScanProgress(controller.scanInBackground(Platform::runLater));
         } else {
             mainApp.showAlertError(new String[]{
                     "Error", "Invalid Path Entered", "Please enter a valid path name, or select a path with Choose..."
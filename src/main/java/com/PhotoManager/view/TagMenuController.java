@@ -2,12 +2,15 @@
 package com.PhotoManager.view;
 
 import com.PhotoManager.GUInterface;
+import com.PhotoManager.model.TagRenameTask;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
+import java.util.Collections;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,6 +34,9 @@ public class TagMenuController {
     @FXML
     private Button btnRemoveTag;
 
+    @FXML
+    private Button btnRenameTag;
+
     public TagMenuController() {
     }
 
@@ -41,6 +47,7 @@ public class TagMenuController {
     private void initialize() {
         lvTags.setOnMouseClicked(event -> {
             btnRemoveTag.setDisable(false);
+            btnRenameTag.setDisable(false);
             btnSearch.setDisable(false);
         });
     }
@@ -111,6 +118,46 @@ public class TagMenuController {
         }
     }
 
+    /**
+     * Handles functionality for the Rename Tag button press. Renaming a tag to one that
+     * already exists merges the two.
+     */
+    @FXML
+    public void handleRenameTag() {
+        String tag = lvTags.getSelectionModel().getSelectedItem();
+        if (tag == null) {
+            return;
+        }
+        String newTag = mainApp.showDialogTextInput(new String[]{
+                "Rename Tag", "Enter a New Name for " + tag, "New Name: "
+        }).trim();
+        if (newTag.isEmpty() || newTag.equals(tag)) {
+            return;
+        }
+        try {
+            TagRenameTask task;
+            if (mainApp.getController().getAvailableTags().contains(newTag)) {
+                if (!mainApp.showAlertConfirmation(new String[]{
+                        "Merge Tags", "Are You Sure?", "Every image tagged " + tag +
+                        " will be tagged " + newTag + " instead"
+                })) {
+                    return;
+                }
+                task = mainApp.getController().mergeTags(Collections.singleton(tag), newTag,
+                        Platform::runLater);
+            } else {
+                task = mainApp.getController().renameTag(tag, newTag, Platform::runLater);
+            }
+            mainApp.showTagRenameProgress(task);
+            task.whenDone((result, failure) -> mainApp.showTagMenu());
+        } catch (IllegalArgumentException e) {
+            mainApp.showAlertError(new String[]{
+                    "Error", "Tag Failed to Rename", "The tag " + tag + " cannot be renamed to " +
+                    newTag + ". Try another tag."
+            });
+        }
+    }
+
     /**
      * Handles functionality for the Add Tag button press.
      */
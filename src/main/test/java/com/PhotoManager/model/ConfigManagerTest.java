@@ -0,0 +1,197 @@
+package com.PhotoManager.model;
+
+import com.PhotoManager.Controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigManagerTest {
+
+    private File configDirectory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        configDirectory = Files.createTempDirectory("configDirectory").toFile();
+    }
+
+    private static HashSet<String> tags(ConfigManager config) {
+        HashSet<String> tags = new HashSet<>();
+        for (Iterator<String> cachedTags = config.getCachedTags(); cachedTags.hasNext(); ) {
+            tags.add(cachedTags.next());
+        }
+        return tags;
+    }
+
+    @Test
+    public void testAppendAndCompact() throws IOException {
+        File root = Files.createTempDirectory("config").toFile();
+        assertTrue(new File(root, "a.jpg").createNewFile());
+        Controller c = new Controller(root);
+        ConfigManager config = new ConfigManager(configDirectory);
+        Directory directory = new Directory(c, null, root, config);
+        RenameExecutor renamer = new RenameExecutor(1);
+        String tag = UUID.randomUUID().toString().replace("-", "");
+
+        Image image = directory.getImage(new File(root, "a.jpg"));
+        image.addTag(tag);
+        image.addHistory(new String[]{"a.jpg", image.getImageName(), "now"});
+        directory.updateImagesOSPathAll(renamer);
+        File tagged = image.getFilePath();
+        config.writeData(new HashSet<>(Collections.singleton(tag)));
+
+        ConfigManager reopened = new ConfigManager(configDirectory);
+        assertTrue(tags(reopened).contains(tag));
+        assertEquals(1, reopened.getImageHistory(tagged).size());
+
+        // Renamed back: the history follows the Image
+        image.removeTag(tag);
+        image.addHistory(new String[]{tagged.getName(), "a.jpg", "later"});
+        directory.updateImagesOSPathAll(renamer);
+        renamer.shutdown();
+        config.writeData(new HashSet<>());
+        config.compactAsync().join();
+
+        reopened = new ConfigManager(configDirectory);
+        assertTrue(!tags(reopened).contains(tag));
+        assertNull(reopened.getImageHistory(tagged));
+        ArrayList<String[]> history = reopened.getImageHistory(new File(root, "a.jpg"));
+        assertEquals(2, history.size());
+        assertEquals("later", history.get(1)[2]);
+
+        // Compacting again writes the next generation under a store that is still mapped
+        ConfigManager mapped = new ConfigManager(configDirectory);
+        config.compactAsync().join();
+        assertEquals(2, mapped.getImageHistory(new File(root, "a.jpg")).size());
+        assertEquals(2, new ConfigManager(configDirectory)
+                .getImageHistory(new File(root, "a.jpg")).size());
+    }
+
+    @Test
+    public void testVerifyHistories() throws IOException {
+        File root = Files.createTempDirectory("config").toFile();
+        File kept = new File(root, "kept.jpg");
+        File deleted = new File(root, "deleted.jpg");
+        assertTrue(kept.createNewFile());
+        assertTrue(deleted.createNewFile());
+        Controller c = new Controller(root);
+        ConfigManager config = new ConfigManager(configDirectory);
+        Directory directory = new Directory(c, null, root, config);
+        for (File file : new File[]{kept, deleted}) {
+            directory.getImage(file).addHistory(new String[]{"old.jpg", file.getName(), "now"});
+        }
+        config.writeData(new HashSet<>());
+        assertTrue(deleted.delete());
+
+        // Nothing is checked when starting
+        ConfigManager reopened = new ConfigManager(configDirectory);
+        assertTrue(reopened.getUnusedHistories().containsKey(deleted));
+        assertEquals(1, (int) reopened.verifyHistoriesAsync(Runnable::run).join());
+        assertTrue(!reopened.getUnusedHistories().containsKey(deleted));
+        assertEquals(1, reopened.getImageHistory(kept).size());
+        assertTrue(!reopened.getUnusedHistories().containsKey(kept));
+
+        reopened = new ConfigManager(configDirectory);
+        assertNull(reopened.getImageHistory(deleted));
+        assertEquals(1, reopened.getImageHistory(kept).size());
+    }
+
+    @Test
+    public void testScheduledWrites() throws IOException, InterruptedException {
+        File root = Files.createTempDirectory("config").toFile();
+        File file = new File(root, "a.jpg");
+        assertTrue(file.createNewFile());
+        Controller c = new Controller(root);
+        ConfigManager config = new ConfigManager(configDirectory);
+        Directory directory = new Directory(c, null, root, config);
+        HashSet<String> tags = new HashSet<>();
+        config.writeData(tags);
+        assertTrue(!config.hasChanges());
+        assertTrue(config.writeDataAsync(tags).isDone());
+
+        LinkedBlockingQueue<Runnable> modelThread = new LinkedBlockingQueue<>();
+        config.startScheduledWrites(() -> tags, modelThread::add, 50);
+        Image image = directory.getImage(file);
+        for (int i = 0; i < 3; i++) {
+            image.addHistory(new String[]{"old" + i + ".jpg", "a.jpg", "now"});
+        }
+        assertTrue(config.hasChanges());
+        assertTrue(modelThread.isEmpty());
+
+        // The changes are saved by one write once the delay passes
+        Runnable write = modelThread.poll(5, TimeUnit.SECONDS);
+        assertTrue(write != null);
+        write.run();
+        assertTrue(!config.hasChanges());
+        assertNull(modelThread.poll(200, TimeUnit.MILLISECONDS));
+        config.writeData(tags);
+        assertEquals(3, new ConfigManager(configDirectory).getImageHistory(file).size());
+
+        // A scheduled write is saved at once by a final writeData
+        config.scheduleWrite();
+        image.addHistory(new String[]{"old.jpg", "a.jpg", "later"});
+        config.stopScheduledWrites();
+        config.writeData(tags);
+        assertNull(modelThread.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(4, new ConfigManager(configDirectory).getImageHistory(file).size());
+    }
+
+    @Test
+    public void testChecksum() throws IOException {
+        File file = new File(Files.createTempDirectory("config").toFile(), "config.txt");
+        ConfigManager.writeChecked(file, "a, b, \u00e9t\u00e9\n");
+        assertEquals("a, b, \u00e9t\u00e9\n", ConfigManager.readChecked(file));
+        byte[] checked = Files.readAllBytes(file.toPath());
+
+        byte[] bytes = checked.clone();
+        bytes[0] = 'c';
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> ConfigManager.readChecked(file));
+
+        // A damaged checksum line is never taken for a file without one
+        bytes = checked.clone();
+        bytes[bytes.length - 2] = 'x';
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> ConfigManager.readChecked(file));
+        Files.write(file.toPath(), Arrays.copyOf(checked, checked.length - 12));
+        assertThrows(IOException.class, () -> ConfigManager.readChecked(file));
+
+        // Written before config files had a checksum
+        String legacy = "#a, b\n/c.jpg|a.jpg;c.jpg;now\n";
+        Files.write(file.toPath(), legacy.getBytes(StandardCharsets.UTF_8));
+        assertEquals(legacy, ConfigManager.readChecked(file));
+    }
+
+    @Test
+    public void testCorruptConfigFallsBackToPrevious() throws IOException {
+        ConfigManager config = new ConfigManager(configDirectory);
+        config.writeData(new HashSet<>(Collections.singleton("first")));
+        config.compactAsync().join();
+        config.writeData(new HashSet<>(Collections.singleton("second")));
+        config.compactAsync().join();
+        assertEquals(Collections.singleton("second"), tags(new ConfigManager(configDirectory)));
+
+        File configFile = new File(configDirectory, "config.txt");
+        byte[] bytes = Files.readAllBytes(configFile.toPath());
+        bytes[0] ^= 1;
+        Files.write(configFile.toPath(), bytes);
+        assertEquals(Collections.singleton("first"), tags(new ConfigManager(configDirectory)));
+    }
+}
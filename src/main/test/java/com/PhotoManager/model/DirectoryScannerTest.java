@@ -0,0 +1,327 @@
+package com.PhotoManager.model;
+
+import com.PhotoManager.Controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoryScannerTest {
+
+    private File root;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("scanner").toFile();
+        for (String folder : new String[]{"a", "a/b", "a/c", "d", "d/e/f"}) {
+            File dir = new File(root, folder);
+            assertTrue(dir.mkdirs());
+            for (int i = 0; i < 3; i++) {
+                assertTrue(new File(dir, "img" + i + ".jpg").createNewFile());
+                assertTrue(new File(dir, "tagged" + i + " @tag" + i + ".PNG").createNewFile());
+                assertTrue(new File(dir, "notes" + i + ".txt").createNewFile());
+            }
+        }
+    }
+
+    /**
+     * Return a textual dump of directory, its Images, their tags and its sub-Directories.
+     */
+    private String dump(Directory directory) {
+        StringBuilder tree = new StringBuilder(directory.getFile() + "\n");
+        for (Image image : directory.getImages()) {
+            tree.append(image.getFilePath()).append(image.getTags()).append("\n");
+        }
+        for (Directory subDirectory : directory.getDirectories()) {
+            assertTrue(subDirectory.getParentDirectory() == directory);
+            tree.append(dump(subDirectory));
+        }
+        return tree.toString();
+    }
+
+    @Test
+    public void testSameTreeAsRecursiveConstructor() {
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            Controller c = new Controller(root, new DirectoryScanner(parallelism));
+            Directory recursive = new Directory(c, null, root, new ConfigManager());
+            assertEquals(dump(recursive), dump(c.getRootDirectory()));
+        }
+    }
+
+    @Test
+    public void testMissingRoot() {
+        Controller c = new Controller(new File(root, "missing"), new DirectoryScanner(2));
+        assertEquals(0, c.getRootDirectory().getImages().size());
+        assertEquals(0, c.getRootDirectory().getDirectories().size());
+    }
+
+    @Test
+    public void testLazyScan() {
+        Controller eager = new Controller(root, new DirectoryScanner(2));
+        Controller lazy = new Controller(root, new DirectoryScanner(2, true));
+        Directory lazyRoot = lazy.getRootDirectory();
+
+        // Only the root is listed when opened
+        assertTrue(lazyRoot.isLoaded());
+        for (Directory subDirectory : lazyRoot.getLoadedDirectories()) {
+            assertFalse(subDirectory.isLoaded());
+        }
+        assertEquals(0, lazyRoot.getLoadedImagesInSubDirectories().size());
+
+        // Walking the tree lists it as it goes
+        assertEquals(eager.getRootDirectory().getImagesInSubDirectories().size(),
+                lazyRoot.getImagesInSubDirectories().size());
+        assertEquals(dump(eager.getRootDirectory()), dump(lazyRoot));
+    }
+
+    /**
+     * Return the number of Directories under directory that have been listed, failing if any
+     * of them hasn't.
+     */
+    private static int countLoaded(Directory directory) {
+        assertTrue(directory.isLoaded());
+        int loaded = 1;
+        for (Directory subDirectory : directory.getLoadedDirectories()) {
+            loaded += countLoaded(subDirectory);
+        }
+        return loaded;
+    }
+
+    @Test
+    public void testBackgroundScan() throws Exception {
+        Controller eager = new Controller(root, new DirectoryScanner(2));
+        Controller lazy = new Controller(root, new DirectoryScanner(2, true));
+        AtomicReference<ScanProgress> reported = new AtomicReference<>();
+
+        ScanTask task = lazy.scanInBackground(Runnable::run);
+        task.addProgressListener(reported::set);
+        assertTrue(task.get() == lazy.getRootDirectory());
+
+        assertEquals(7, countLoaded(lazy.getRootDirectory()));
+        assertEquals(dump(eager.getRootDirectory()), dump(lazy.getRootDirectory()));
+        assertEquals(7, task.getProgress().getFoldersVisited());
+        assertEquals(30, task.getProgress().getImagesFound());
+        assertTrue(task.isDone());
+    }
+
+    @Test
+    public void testBackgroundScanOfBrowsedTree() throws Exception {
+        Controller eager = new Controller(root, new DirectoryScanner(2));
+        DirectoryScanner scanner = new DirectoryScanner(2, true);
+        Controller lazy = new Controller(root, scanner);
+        ScanTask task = scanner.scanInBackground(lazy.getRootDirectory(), new ConfigManager(),
+                Runnable::run);
+
+        // Opened after the scan started, so its own listing is kept
+        Directory opened = lazy.search(new File(root, "a"));
+        assertEquals(6, opened.getImages().size());
+        assertTrue(opened.isLoaded());
+        task.start().get();
+
+        assertEquals(7, countLoaded(lazy.getRootDirectory()));
+        assertEquals(dump(eager.getRootDirectory()), dump(lazy.getRootDirectory()));
+    }
+
+    @Test
+    public void testCancelledBackgroundScan() throws Exception {
+        Controller eager = new Controller(root, new DirectoryScanner(2));
+        DirectoryScanner scanner = new DirectoryScanner(2, true);
+        Controller lazy = new Controller(root, scanner);
+        ScanTask task = scanner.scanInBackground(lazy.getRootDirectory(), new ConfigManager(),
+                Runnable::run);
+        task.cancel();
+        task.start();
+        assertThrows(CancellationException.class, task::get);
+
+        // Folders that weren't scanned are listed when needed
+        for (Directory subDirectory : lazy.getRootDirectory().getLoadedDirectories()) {
+            assertFalse(subDirectory.isLoaded());
+        }
+        assertEquals(dump(eager.getRootDirectory()), dump(lazy.getRootDirectory()));
+    }
+
+    @Test
+    public void testGoUpKeepsSubTree() throws Exception {
+        Controller eager = new Controller(root, new DirectoryScanner(2));
+        Controller c = new Controller(new File(root, "a"), new DirectoryScanner(2));
+        Directory a = c.getRootDirectory();
+        Directory b = c.search(new File(root, "a" + File.separator + "b"));
+
+        assertTrue(c.goUpDirectory());
+        assertTrue(c.getRootDirectory().isLoaded());
+        assertTrue(c.search(new File(root, "a")) == a);
+        assertTrue(c.search(new File(root, "a" + File.separator + "b")) == b);
+        assertFalse(c.getRootDirectory().getDirectory(new File(root, "d")) == null);
+        for (Directory subDirectory : c.getRootDirectory().getLoadedDirectories()) {
+            assertEquals(subDirectory == a, subDirectory.isLoaded());
+        }
+
+        c.scanInBackground(Runnable::run).get();
+        assertEquals(7, countLoaded(c.getRootDirectory()));
+        assertEquals(dump(eager.getRootDirectory()), dump(c.getRootDirectory()));
+    }
+
+    /**
+     * Sets the modification time of directory and its sub-directories far enough in the past
+     * that a snapshot trusts it.
+     */
+    private static void age(File directory) {
+        for (File file : directory.listFiles()) {
+            if (file.isDirectory()) {
+                age(file);
+            }
+        }
+        assertTrue(directory.setLastModified(1500000000000L));
+    }
+
+    @Test
+    public void testSnapshotReopen() throws IOException {
+        age(root);
+        DirectoryScanner scanner = new DirectoryScanner(2);
+        Controller c = new Controller(root, scanner);
+        File snapshotFile = new File(root.getParentFile(), root.getName() + ".dat");
+        ScanSnapshot.write(snapshotFile, c.getRootDirectory());
+
+        // Changed folders are listed again
+        assertTrue(new File(root, "a/b/new.jpg").createNewFile());
+        for (File file : new File(root, "d/e/f").listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(new File(root, "d/e/f").delete());
+        // Folders with the same modification time are not
+        File hidden = new File(root, "a/c/hidden.jpg");
+        assertTrue(hidden.createNewFile());
+        assertTrue(new File(root, "a/c").setLastModified(1500000000000L));
+
+        Directory reopened = scanner.scan(c, root, new ConfigManager(),
+                ScanSnapshot.read(snapshotFile, root));
+        assertTrue(hidden.delete());
+        assertTrue(new File(root, "a/c").setLastModified(1500000000000L));
+        assertEquals(dump(new Directory(c, null, root, new ConfigManager())), dump(reopened));
+
+        Image image = reopened.getDirectory(new File(root, "a")).getImages().get(0);
+        assertEquals(0, image.getFileSize());
+        assertTrue(image.getLastModified() > 0);
+        assertTrue(snapshotFile.delete());
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException {
+        age(root);
+        Controller c = new Controller(root, new DirectoryScanner(2));
+        File snapshotFile = new File(root.getParentFile(), root.getName() + ".dat");
+        ScanSnapshot.write(snapshotFile, c.getRootDirectory());
+        ScanSnapshot.read(snapshotFile, root);
+
+        // Of another root
+        assertThrows(IOException.class, () -> ScanSnapshot.read(snapshotFile,
+                new File(root, "a")));
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            // Corrupt
+            file.seek(file.length() / 2);
+            int original = file.read();
+            file.seek(file.length() / 2);
+            file.write(original ^ 1);
+            assertThrows(IOException.class, () -> ScanSnapshot.read(snapshotFile, root));
+
+            // Truncated
+            file.seek(file.length() / 2);
+            file.write(original);
+            file.setLength(file.length() - 3);
+            assertThrows(IOException.class, () -> ScanSnapshot.read(snapshotFile, root));
+        }
+        assertTrue(snapshotFile.delete());
+    }
+
+    @Test
+    public void testHasImageExtension() {
+        assertTrue(Directory.hasImageExtension("a.jpg"));
+        assertTrue(Directory.hasImageExtension("a @tag.JPEG"));
+        assertTrue(Directory.hasImageExtension("a.b.Tiff"));
+        assertFalse(Directory.hasImageExtension("a.jpg.txt"));
+        assertFalse(Directory.hasImageExtension("jpg"));
+        assertFalse(Directory.hasImageExtension("a.jp"));
+    }
+
+    /**
+     * A File that counts every call which needs a stat of the OS's filesystem.
+     */
+    static class CountingFile extends File {
+        static long stats = 0;
+
+        CountingFile(File file) {
+            super(file.getPath());
+        }
+
+        @Override
+        public boolean exists() {
+            stats++;
+            return super.exists();
+        }
+
+        @Override
+        public boolean isFile() {
+            stats++;
+            return super.isFile();
+        }
+    }
+
+    private static final HashSet<String> LEGACY_EXTENSIONS = new HashSet<>(Arrays.asList(
+            ".gif", ".png", ".jpg", ".bmp", ".tiff", ".jpeg"));
+
+    /**
+     * Return the number of Images and directories in directory, probing each entry the way
+     * Directory did before listing with NIO.
+     */
+    static int legacyList(File directory) {
+        int found = 0;
+        for (File listed : directory.listFiles()) {
+            File file = new CountingFile(listed);
+            if (file.exists() && file.isFile() && file.getAbsolutePath().contains(".") &&
+                    LEGACY_EXTENSIONS.contains(file.getAbsolutePath().substring(
+                            file.getAbsolutePath().lastIndexOf(".")).toLowerCase())) {
+                found++;
+            } else if (file.exists() && !file.isFile()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void testListingReadsEachEntryOnce() throws IOException {
+        int files = 1000;
+        File folder = new File(root, "benchmark");
+        assertTrue(folder.mkdir());
+        for (int i = 0; i < files; i++) {
+            String extension = i % 4 == 0 ? ".txt" : ".jpg";
+            assertTrue(new File(folder, "photo" + i + extension).createNewFile());
+        }
+
+        CountingFile.stats = 0;
+        int legacyFound = legacyList(folder);
+        long legacyStats = CountingFile.stats;
+        CountingFileSystemProvider provider = new CountingFileSystemProvider();
+        DirectoryScanner.Listing listing = DirectoryScanner.list(provider.getPath(folder));
+
+        assertEquals(legacyFound, listing.images.size() + listing.directories.size());
+        assertEquals(folder, listing.images.get(0).file.getParentFile());
+        // The folder itself once, then each entry once
+        assertEquals(files + 1, provider.getStats());
+        assertTrue(provider.getStats() < legacyStats);
+    }
+}
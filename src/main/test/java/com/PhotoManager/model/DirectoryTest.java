@@ -0,0 +1,605 @@
+package com.PhotoManager.model;
+
+import com.PhotoManager.Controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoryTest {
+
+    private static final int FILES = 5000;
+
+    /**
+     * Time to wait for work handed to another thread before failing.
+     */
+    private static final long MAX_WAIT_MILLIS = 5000;
+
+    private File root;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("directory").toFile();
+        for (String folder : new String[]{"a/b/deep", "a/bc", "d"}) {
+            assertTrue(new File(root, folder).mkdirs());
+            assertTrue(new File(root, folder + File.separator + "img.jpg").createNewFile());
+        }
+    }
+
+    /**
+     * Return a new Controller whose root holds only one sub-Directory, of files Images.
+     */
+    static Controller createLargeFolder(int files) throws IOException {
+        File cameraRoot = Files.createTempDirectory("camera").toFile();
+        File cameraDump = new File(cameraRoot, "camera");
+        assertTrue(cameraDump.mkdir());
+        for (int i = 0; i < files; i++) {
+            assertTrue(new File(cameraDump, "IMG_" + i + ".jpg").createNewFile());
+        }
+        return new Controller(cameraRoot);
+    }
+
+    @Test
+    public void testLargeFolder() throws IOException {
+        Directory folder = createLargeFolder(FILES).getRootDirectory().getDirectories().get(0);
+        ArrayList<Image> images = folder.getImages();
+        assertEquals(FILES, images.size());
+
+        // Reconciling an unchanged folder keeps every Image and their order
+        folder.updateDirectoryChanges();
+        ArrayList<Image> reconciled = folder.getImages();
+        assertEquals(FILES, reconciled.size());
+        for (int i = 0; i < FILES; i++) {
+            assertTrue(reconciled.get(i) == images.get(i));
+        }
+
+        for (Image image : images) {
+            assertTrue(folder.getImage(image.getFilePath()) == image);
+        }
+
+        for (Image image : images) {
+            folder.removeFile(image.getFilePath());
+        }
+        assertEquals(0, folder.getImages().size());
+        assertNull(folder.getImage(images.get(0).getFilePath()));
+
+        for (Image image : images) {
+            folder.addImage(image);
+        }
+        assertEquals(images, folder.getImages());
+        assertTrue(folder.getImage(images.get(FILES - 1).getFilePath()) == images.get(FILES - 1));
+    }
+
+    @Test
+    public void testPendingRenameSurvivesReconcile() throws IOException {
+        Controller c = createLargeFolder(FILES);
+        Directory folder = c.getRootDirectory().getDirectories().get(0);
+        Image image = folder.getImages().get(0);
+        File original = image.getFilePath();
+        c.addTag(image, "pending");
+
+        // The rename hasn't happened on disk yet
+        folder.updateDirectoryChanges();
+        assertEquals(FILES, folder.getImages().size());
+        assertTrue(folder.getImage(image.getFilePath()) == image);
+        assertNull(folder.getImage(original));
+    }
+
+    @Test
+    public void testFlushRenames() throws IOException {
+        File d = new File(root, "d");
+        for (String name : new String[]{"one.jpg", "two.jpg", "clash.jpg", "clash @x.jpg"}) {
+            assertTrue(new File(d, name).createNewFile());
+        }
+        Controller c = new Controller(root);
+        Directory bc = c.search(new File(root, "a" + File.separator + "bc"));
+        Directory dDirectory = c.search(d);
+
+        bc.getImage(new File(bc.getFile(), "img.jpg")).addTag("x");
+        dDirectory.getImage(new File(d, "img.jpg")).addTag("x");
+        // Renamed in the order they were queued, so two.jpg is free for one.jpg
+        dDirectory.getImage(new File(d, "two.jpg")).forceFilePath(new File(d, "three.jpg"));
+        dDirectory.getImage(new File(d, "one.jpg")).forceFilePath(new File(d, "two.jpg"));
+        Image clash = dDirectory.getImage(new File(d, "clash.jpg"));
+        clash.addTag("x");
+
+        RenameExecutor renamer = new RenameExecutor(2);
+        RenameExecutor.BatchResult result = c.getRootDirectory().updateImagesOSPathAll(renamer);
+        renamer.shutdown();
+
+        assertEquals(4, result.getRenamed());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(0).getImage() == clash);
+        assertEquals(2, result.getDirectoriesUpdated());
+        assertTrue(new File(bc.getFile(), "img @x.jpg").exists());
+        assertTrue(new File(d, "img @x.jpg").exists());
+        assertTrue(new File(d, "three.jpg").exists());
+        assertTrue(new File(d, "two.jpg").exists());
+        assertTrue(!new File(d, "one.jpg").exists());
+
+        // The failed rename is back at its name in the OS's filesystem
+        assertEquals(new File(d, "clash.jpg"), clash.getFilePath());
+        assertTrue(clash.getTags().isEmpty());
+        assertTrue(dDirectory.getImage(new File(d, "clash.jpg")) == clash);
+        assertEquals(5, dDirectory.getImages().size());
+        assertEquals(0, c.getRootDirectory().updateImagesOSPathAll(renamer).getRenamed());
+    }
+
+    @Test
+    public void testFlushChainAcrossFolders() throws IOException {
+        File d = new File(root, "d");
+        File bc = new File(root, "a" + File.separator + "bc");
+        assertTrue(new File(d, "x.jpg").createNewFile());
+        assertTrue(new File(d, "y.jpg").createNewFile());
+        Controller c = new Controller(root);
+        Directory dDirectory = c.search(d);
+        Image x = dDirectory.getImage(new File(d, "x.jpg"));
+        Image y = dDirectory.getImage(new File(d, "y.jpg"));
+
+        // y.jpg takes the name x.jpg leaves for another folder
+        c.setCurrentDirectory(dDirectory);
+        assertTrue(c.moveFileToDirectory(c.search(bc), x.getFilePath()));
+        y.forceFilePath(new File(d, "x.jpg"));
+        RenameExecutor renamer = new RenameExecutor(2);
+        RenameExecutor.BatchResult result = c.getRootDirectory().updateImagesOSPathAll(renamer);
+        renamer.shutdown();
+
+        assertEquals(0, result.getFailures().size());
+        assertEquals(2, result.getRenamed());
+        assertEquals(new File(bc, "x.jpg"), x.getFilePath());
+        assertEquals(new File(d, "x.jpg"), y.getFilePath());
+        assertTrue(new File(bc, "x.jpg").exists());
+        assertTrue(new File(d, "x.jpg").exists());
+        assertTrue(!new File(d, "y.jpg").exists());
+    }
+
+    @Test
+    public void testFailedRenameRestoresTagsAndHistory() throws IOException {
+        File d = new File(root, "d");
+        assertTrue(new File(d, "clash @y.jpg").createNewFile());
+        assertTrue(new File(d, "clash @x @y.jpg").createNewFile());
+        Controller c = new Controller(root);
+        Image clash = c.search(d).getImage(new File(d, "clash @y.jpg"));
+        assertTrue(c.addTag(clash, "x"));
+        assertTrue(c.removeTag("y", clash));
+        c.addTag(clash, "y");
+        assertEquals(3, clash.getHistory().size());
+        assertTrue(c.findImagesByTag("x", null).contains(clash));
+
+        assertEquals(1, c.commit().join().getFailures().size());
+        assertEquals(new File(d, "clash @y.jpg"), clash.getFilePath());
+        assertTrue(clash.getHistory().isEmpty());
+        assertTrue(!c.findImagesByTag("x", null).contains(clash));
+        assertTrue(c.findImagesByTag("y", null).contains(clash));
+
+        // Renamed back to its name and away again before the failed rename
+        assertTrue(new File(d, "clash @y @x.jpg").createNewFile());
+        assertTrue(c.addTag(clash, "x"));
+        assertTrue(c.removeTag("x", clash));
+        assertTrue(c.addTag(clash, "x"));
+        assertEquals(new File(d, "clash @y @x.jpg"), clash.getFilePath());
+        assertEquals(3, clash.getHistory().size());
+        assertEquals(1, c.commit().join().getFailures().size());
+        assertEquals(new File(d, "clash @y.jpg"), clash.getFilePath());
+        assertTrue(clash.getHistory().isEmpty());
+    }
+
+    @Test
+    public void testFlushUpdatesTreeInPlace() throws IOException {
+        Controller c = createLargeFolder(FILES);
+        Directory folder = c.getRootDirectory().getDirectories().get(0);
+        Directory top = c.getRootDirectory();
+        assertTrue(new File(top.getFile(), "IMG_0.jpg").createNewFile());
+        top.updateDirectoryChanges();
+        RenameExecutor renamer = new RenameExecutor(2);
+
+        Image renamed = folder.getImage(new File(folder.getFile(), "IMG_1.jpg"));
+        renamed.addTag("x");
+        // Only a relisting of folder would find this file
+        assertTrue(new File(folder.getFile(), "unlisted.jpg").createNewFile());
+        assertEquals(1, top.updateImagesOSPathAll(renamer).getRenamed());
+        assertNull(folder.getImage(new File(folder.getFile(), "unlisted.jpg")));
+        assertEquals(FILES, folder.getImages().size());
+        assertTrue(folder.getImage(new File(folder.getFile(), "IMG_1 @x.jpg")) == renamed);
+        assertNull(folder.getImage(new File(folder.getFile(), "IMG_1.jpg")));
+
+        c.setCurrentDirectory(folder);
+        Image moved = folder.getImage(new File(folder.getFile(), "IMG_2.jpg"));
+        assertTrue(c.moveFileToDirectory(top, moved.getFilePath()));
+        assertEquals(1, top.updateImagesOSPathAll(renamer).getRenamed());
+        renamer.shutdown();
+
+        assertTrue(new File(top.getFile(), "IMG_2.jpg").exists());
+        assertTrue(top.getImage(new File(top.getFile(), "IMG_2.jpg")) == moved);
+        assertNull(folder.getImage(new File(folder.getFile(), "IMG_2.jpg")));
+        assertEquals(FILES - 1, folder.getImages().size());
+        assertEquals(2, top.getImages().size());
+    }
+
+    @Test
+    public void testMoveImages() throws IOException {
+        File source = new File(root, "a/bc");
+        int count = RenameExecutor.SPLIT_SIZE * 3;
+        for (int i = 0; i < count; i++) {
+            assertTrue(new File(source, "IMG_" + i + ".jpg").createNewFile());
+        }
+        Controller c = new Controller(root);
+        Directory from = c.search(source);
+        Directory to = c.search(new File(root, "d"));
+        Image inTarget = to.getImage(new File(to.getFile(), "img.jpg"));
+        List<Image> images = from.getImages();
+        images.add(inTarget);
+        assertEquals(count + 2, images.size());
+        // Listed twice, but moved once
+        Image twice = from.getImage(new File(source, "IMG_7.jpg"));
+        images.add(twice);
+
+        MoveSummary summary = c.moveImages(images, to).join();
+        assertEquals(count, summary.count(MoveSummary.Outcome.MOVED));
+        assertEquals(MoveSummary.Outcome.MOVED, summary.getOutcome(twice));
+        assertEquals(MoveSummary.Outcome.ALREADY_THERE, summary.getOutcome(inTarget));
+        // a/bc/img.jpg clashes with d/img.jpg
+        assertEquals(1, summary.count(MoveSummary.Outcome.NAME_TAKEN));
+        assertTrue(!summary.isComplete());
+
+        assertEquals(1, from.getImages().size());
+        assertEquals(count + 1, to.getImages().size());
+        assertEquals(1, source.list().length);
+        assertEquals(count + 1, to.getFile().list().length);
+        Image moved = to.getImage(new File(to.getFile(), "IMG_7.jpg"));
+        assertNotNull(moved);
+        assertTrue(moved.getCurrentDirectory() == to);
+        assertEquals(moved.getFilePath(), moved.getOSFilePath());
+
+        assertThrows(IllegalArgumentException.class, () ->
+                c.moveImages(images, null));
+    }
+
+    @Test
+    public void testApplyTagChanges() throws IOException {
+        File d = new File(root, "d");
+        assertTrue(new File(d, "cat @a @ab.jpg").createNewFile());
+        Controller c = new Controller(root);
+        Directory dDirectory = c.search(d);
+        Image img = dDirectory.getImage(new File(d, "img.jpg"));
+        Image cat = dDirectory.getImage(new File(d, "cat @a @ab.jpg"));
+        List<Image> images = Arrays.asList(img, cat);
+
+        assertEquals(2, c.applyTagChanges(images, new HashSet<>(Arrays.asList("x", "y", "z")),
+                Collections.singleton("a")));
+        assertEquals("img @x @y @z.jpg".length(), img.getImageName().length());
+        assertEquals(new HashSet<>(Arrays.asList("x", "y", "z")), img.getTags());
+        assertTrue(cat.getImageName().startsWith("cat @ab @"));
+        assertEquals(new HashSet<>(Arrays.asList("ab", "x", "y", "z")), cat.getTags());
+        // One history entry per Image, and one queued rename
+        assertEquals(1, img.getHistory().size());
+        assertEquals(1, cat.getHistory().size());
+        assertEquals(2, new HashSet<>(dDirectory.getUpdateQueue()).size());
+        assertTrue(c.findImagesByTag("a", null).isEmpty());
+        assertTrue(c.findImagesByTag("x", null).contains(cat));
+
+        // Nothing to change
+        assertEquals(0, c.applyTagChanges(images, Collections.singleton("x"),
+                Collections.singleton("a")));
+        // Every tag is checked before any is added
+        assertThrows(IllegalArgumentException.class, () -> c.applyTagChanges(images,
+                new LinkedHashSet<>(Arrays.asList("ok", "n/o")), Collections.emptySet()));
+        assertEquals(new HashSet<>(Arrays.asList("x", "y", "z")), img.getTags());
+        assertTrue(!c.getAvailableTags().contains("ok"));
+    }
+
+    @Test
+    public void testTagStores() throws IOException {
+        File d = new File(root, "d");
+        assertTrue(new File(d, "cat @a @ab.jpg").createNewFile());
+        Controller c = new Controller(root);
+        HashSet<String> catTags = new HashSet<>(Arrays.asList("a", "ab"));
+        try {
+            RenameExecutor.BatchResult result = c.migrateTags(new SidecarTagStore());
+            assertEquals(1, result.getRenamed());
+            assertEquals(1, result.getTagged());
+            assertTrue(new File(d, "cat.jpg").exists());
+            assertTrue(new File(d, SidecarTagStore.SIDECAR_NAME).exists());
+            Image cat = c.search(d).getImage(new File(d, "cat.jpg"));
+            assertEquals(catTags, cat.getTags());
+            assertEquals("cat @a @ab.jpg", cat.getHistory().get(0)[0]);
+
+            // Tagging writes the sidecar without renaming
+            Image img = c.search(d).getImage(new File(d, "img.jpg"));
+            assertEquals(1, c.applyTagChanges(Collections.singleton(img),
+                    Collections.singleton("x"), Collections.emptySet()));
+            assertEquals("img.jpg", img.getImageName());
+            assertTrue(img.getHistory().isEmpty());
+            result = c.commit().join();
+            assertEquals(0, result.getRenamed());
+            assertEquals(1, result.getTagged());
+            assertEquals(Collections.singleton("x"),
+                    new SidecarTagStore().readTags(new File(d, "img.jpg")));
+            Controller reopened = new Controller(root);
+            assertEquals(Collections.singleton("x"), reopened.search(d)
+                    .getImage(new File(d, "img.jpg")).getTags());
+            // Only the migrated root and the folders under it keep tags in the sidecar
+            assertEquals(SidecarTagStore.NAME, new Controller(d).getTagStore().getName());
+            File otherRoot = Files.createTempDirectory("other").toFile();
+            assertTrue(new File(otherRoot, "dog @b.jpg").createNewFile());
+            Controller other = new Controller(otherRoot);
+            assertEquals(FilenameTagStore.NAME, other.getTagStore().getName());
+            assertEquals(Collections.singleton("b"), other.getRootDirectory()
+                    .getImage(new File(otherRoot, "dog @b.jpg")).getTags());
+
+            if (new XattrTagStore().isSupported(d)) {
+                result = c.migrateTags(new XattrTagStore());
+                assertEquals(0, result.getRenamed());
+                assertEquals(2, result.getTagged());
+                assertTrue(result.getFailures().isEmpty());
+                assertTrue(!new File(d, SidecarTagStore.SIDECAR_NAME).exists());
+                assertEquals(catTags, new XattrTagStore().readTags(new File(d, "cat.jpg")));
+            }
+        } finally {
+            c.migrateTags(new FilenameTagStore());
+        }
+        assertTrue(new File(d, "img @x.jpg").exists());
+        assertEquals(catTags, new FilenameTagStore().readTags(c.search(d).getImages().stream()
+                .filter(image -> image.getImageName().startsWith("cat")).findFirst().get()
+                .getOSFilePath()));
+        assertEquals(FilenameTagStore.NAME, new Controller(root).getTagStore().getName());
+        assertTrue(!new File(d, SidecarTagStore.SIDECAR_NAME).exists());
+    }
+
+    @Test
+    public void testUnflushedTagsStayQueued() throws IOException {
+        File d = new File(root, "d");
+        assertTrue(new File(d, "cat @a.jpg").createNewFile());
+        // The sidecar cannot be replaced while its temporary file is a folder
+        File blocker = new File(d, SidecarTagStore.SIDECAR_NAME + ".tmp");
+        assertTrue(blocker.mkdir());
+        Controller c = new Controller(root);
+        SidecarTagStore sidecar = new SidecarTagStore();
+        try {
+            RenameExecutor.BatchResult result = c.migrateTags(sidecar);
+            assertEquals(1, result.getFailures().size());
+            assertTrue(result.getFailures().get(0).isUnflushed());
+            assertEquals(0, result.getTagged());
+            assertTrue(new File(d, "cat.jpg").exists());
+            Image cat = c.search(d).getImage(new File(d, "cat.jpg"));
+            assertTrue(c.search(d).getUpdateQueue().contains(cat));
+            // Not every Image has moved, so the old TagStore is still the root's
+            assertEquals(FilenameTagStore.NAME, new Controller(root).getTagStore().getName());
+
+            // The next batch writes them out
+            assertTrue(blocker.delete());
+            result = c.commit().join();
+            assertTrue(result.getFailures().isEmpty());
+            assertEquals(1, result.getTagged());
+            assertTrue(c.search(d).getUpdateQueue().isEmpty());
+            assertEquals(Collections.singleton("a"),
+                    new SidecarTagStore().readTags(new File(d, "cat.jpg")));
+            assertTrue(c.migrateTags(sidecar).getFailures().isEmpty());
+            assertEquals(SidecarTagStore.NAME, new Controller(root).getTagStore().getName());
+        } finally {
+            blocker.delete();
+            c.migrateTags(new FilenameTagStore());
+        }
+        assertTrue(new File(d, "cat @a.jpg").exists());
+    }
+
+    /**
+     * Runs the tasks given to modelThread on this thread until result is done.
+     */
+    private static <T> T runUntilDone(BlockingQueue<Runnable> modelThread,
+                                      CompletableFuture<T> result) throws Exception {
+        while (!result.isDone()) {
+            Runnable task = modelThread.poll(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(task);
+            task.run();
+        }
+        return result.get();
+    }
+
+    /**
+     * Return a future completed with the result of task on the model's thread.
+     */
+    private static <T> CompletableFuture<T> whenDone(BackgroundTask<T, ?> task) {
+        CompletableFuture<T> done = new CompletableFuture<>();
+        task.whenDone((result, e) -> {
+            if (e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.complete(result);
+            }
+        });
+        return done;
+    }
+
+    @Test
+    public void testRenameAndMergeTags() throws Exception {
+        File d = new File(root, "d");
+        int count = TagRenameTask.CHUNK_SIZE * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            assertTrue(new File(d, "IMG_" + i + " @dog.jpg").createNewFile());
+        }
+        assertTrue(new File(root, "a/bc/cat @cat @canine.jpg").createNewFile());
+        Controller c = new Controller(root);
+        BlockingQueue<Runnable> modelThread = new LinkedBlockingQueue<>();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                c.renameTag("dog", "canine", modelThread::add));
+        assertThrows(IllegalArgumentException.class, () ->
+                c.renameTag("dog", "do/g", modelThread::add));
+        TagRenameTask rename = c.renameTag("dog", "hound", modelThread::add);
+        List<MoveProgress> progress = new ArrayList<>();
+        rename.addProgressListener(progress::add);
+        RenameExecutor.BatchResult result = runUntilDone(modelThread, whenDone(rename));
+        assertEquals(count, result.getRenamed());
+        assertTrue(result.getFailures().isEmpty());
+        assertTrue(progress.get(progress.size() - 1).isDone());
+        assertTrue(new File(d, "IMG_7 @hound.jpg").exists());
+        assertTrue(!new File(d, "IMG_7 @dog.jpg").exists());
+        assertTrue(!c.getAvailableTags().contains("dog"));
+        assertEquals(count, c.findImagesByTag("hound", null).size());
+        Image seven = c.search(d).getImage(new File(d, "IMG_7 @hound.jpg"));
+        assertEquals(1, seven.getHistory().size());
+
+        TagRenameTask merge = c.mergeTags(Arrays.asList("cat", "canine"), "hound",
+                modelThread::add);
+        assertEquals(1, merge.getTotal());
+        assertEquals(1, runUntilDone(modelThread, whenDone(merge)).getRenamed());
+        assertTrue(new File(root, "a/bc/cat @hound.jpg").exists());
+        assertEquals(count + 1, c.findImagesByTag("hound", null).size());
+        assertTrue(!c.getAvailableTags().contains("cat"));
+        assertTrue(!c.getAvailableTags().contains("canine"));
+
+        // A cancelled job leaves each Image with either tag
+        TagRenameTask cancelled = c.renameTag("hound", "dog", modelThread::add);
+        cancelled.cancel();
+        assertThrows(Exception.class, () -> runUntilDone(modelThread, whenDone(cancelled)));
+        while (!modelThread.isEmpty()) {
+            modelThread.poll().run();
+        }
+        int dogs = c.findImagesByTag("dog", null).size();
+        assertEquals(count + 1, dogs + c.findImagesByTag("hound", null).size());
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        File d = new File(root, "d");
+        Controller c = new Controller(root);
+        Directory dDirectory = c.search(d);
+        Image img = dDirectory.getImage(new File(d, "img.jpg"));
+        BlockingQueue<Runnable> modelThread = new LinkedBlockingQueue<>();
+        RenameExecutor renamer = new RenameExecutor(2);
+
+        img.addTag("x");
+        CompletableFuture<RenameExecutor.BatchResult> first =
+                renamer.flushAsync(c.getRootDirectory(), modelThread::add);
+        // Changed again while its rename runs, so it is renamed again by the next batch
+        img.addTag("y");
+        CompletableFuture<RenameExecutor.BatchResult> second =
+                renamer.flushAsync(c.getRootDirectory(), modelThread::add);
+        assertTrue(renamer.flushAsync(c.getRootDirectory(), modelThread::add) == second);
+        assertTrue(dDirectory.getImage(new File(d, "img @x @y.jpg")) == img);
+
+        assertEquals(1, runUntilDone(modelThread, first).getRenamed());
+        assertEquals(1, runUntilDone(modelThread, second).getRenamed());
+        assertTrue(new File(d, "img @x @y.jpg").exists());
+        assertEquals(img.getFilePath(), img.getOSFilePath());
+        assertTrue(dDirectory.getUpdateQueue().isEmpty());
+        assertTrue(dDirectory.getImage(new File(d, "img @x @y.jpg")) == img);
+        renamer.shutdown();
+
+        // Pending changes are committed without the model thread on shutdown
+        c.startWriteBehind(modelThread::add);
+        img.removeTag("x");
+        CompletableFuture<RenameExecutor.BatchResult> commit = c.commit();
+        assertEquals(0, c.commitPendingChanges().getRenamed());
+        assertEquals(1, commit.get(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS).getRenamed());
+        assertTrue(new File(d, "img @y.jpg").exists());
+    }
+
+    @Test
+    public void testSearchSiblingPrefix() {
+        Controller c = new Controller(root);
+        File b = new File(root, "a" + File.separator + "b");
+        File bc = new File(root, "a" + File.separator + "bc");
+
+        assertEquals(b, c.search(b).getFile());
+        assertEquals(bc, c.search(bc).getFile());
+        assertEquals(b, c.search(new File(b, "deep")).getParentDirectory().getFile());
+        assertEquals(bc, c.search(new File(bc, "img.jpg")).getFile());
+        assertNull(c.search(new File(root, "missing")));
+        assertNull(c.search(root.getParentFile()));
+    }
+
+    @Test
+    public void testSearchNewDirectory() {
+        Controller c = new Controller(root);
+        File created = new File(root, "d" + File.separator + "new" + File.separator + "deeper");
+        assertTrue(created.mkdirs());
+
+        // Not in the tree yet, so it is found by listing its parents again
+        Directory directory = c.search(created);
+        assertEquals(created, directory.getFile());
+        assertTrue(c.search(created) == directory);
+    }
+
+    @Test
+    public void testSearchLazy() {
+        Controller c = new Controller(root, new DirectoryScanner(1, true));
+        File deep = new File(root, "a" + File.separator + "b" + File.separator + "deep");
+        assertEquals(deep, c.search(deep).getFile());
+        assertEquals(1, c.search(deep).getImages().size());
+    }
+
+    /**
+     * Return the Images under directory in the order getImagesInSubDirectories always had.
+     */
+    private static ArrayList<Image> collectRecursively(Directory directory) {
+        ArrayList<Image> images = directory.getImages();
+        for (Directory subDirectory : directory.getDirectories()) {
+            images.addAll(collectRecursively(subDirectory));
+        }
+        return images;
+    }
+
+    @Test
+    public void testStreamImagesInSubDirectories() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            File folder = new File(root, "wide" + File.separator + i + File.separator + "sub");
+            assertTrue(folder.mkdirs());
+            for (int j = 0; j < 5; j++) {
+                assertTrue(new File(folder, j + ".jpg").createNewFile());
+                assertTrue(new File(folder.getParentFile(), j + ".png").createNewFile());
+            }
+        }
+        Directory tree = new Controller(root).getRootDirectory();
+        ArrayList<Image> expected = collectRecursively(tree);
+        assertEquals(3 + 200, expected.size());
+
+        assertEquals(expected, tree.streamImagesInSubDirectories().collect(Collectors.toList()));
+        assertEquals(expected, tree.getLoadedImagesInSubDirectories());
+        // Parallel streams keep the order of the sequential one
+        for (int run = 0; run < 10; run++) {
+            List<Image> parallel = tree.streamLoadedImagesInSubDirectories().parallel()
+                    .collect(Collectors.toList());
+            assertEquals(expected, parallel);
+        }
+        Spliterator<Image> spliterator = tree.streamLoadedImagesInSubDirectories().spliterator();
+        Spliterator<Image> prefix = spliterator.trySplit();
+        assertTrue(prefix != null);
+        ArrayList<Image> split = new ArrayList<>();
+        prefix.forEachRemaining(split::add);
+        spliterator.forEachRemaining(split::add);
+        assertEquals(expected, split);
+    }
+
+    @Test
+    public void testStreamLazyTree() {
+        Directory tree = new Controller(root, new DirectoryScanner(1, true)).getRootDirectory();
+        assertEquals(0, tree.streamLoadedImagesInSubDirectories().count());
+        // The lazy Stream lists Directories as it reaches them, even when made parallel
+        assertEquals(3, tree.streamImagesInSubDirectories().parallel().count());
+        assertEquals(3, tree.streamLoadedImagesInSubDirectories().count());
+        assertNull(tree.streamImagesInSubDirectories().spliterator().trySplit());
+    }
+}
@@ -0,0 +1,143 @@
+package com.PhotoManager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistoryStoreTest {
+
+    private static final int HISTORIES = 1000;
+
+    private File root;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("history").toFile();
+    }
+
+    private static ArrayList<String[]> history(String... changes) {
+        ArrayList<String[]> history = new ArrayList<>();
+        for (int i = 0; i < changes.length; i += 3) {
+            history.add(new String[]{changes[i], changes[i + 1], changes[i + 2]});
+        }
+        return history;
+    }
+
+    private static void assertHistoryEquals(ArrayList<String[]> expected,
+                                            ArrayList<String[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        LinkedHashMap<File, ArrayList<String[]>> histories = new LinkedHashMap<>();
+        File cat = new File(root, "cat @a.jpg");
+        File dog = new File(new File(root, "\u00e9t\u00e9"), "dog.jpg");
+        histories.put(cat, history("cat.jpg", "cat @a.jpg", "Sept, 05, 2017, 14:03:09"));
+        histories.put(dog, history("dog @x.jpg", "dog.jpg", "Dec, 31, 2016, 23:59:59",
+                "dog.jpg", "dog @x.jpg", "not a time", "dog @x.jpg", "dog.jpg", ""));
+        histories.put(new File("relative.jpg"), history());
+        File store = new File(root, "histories.dat");
+        HistoryStore.write(store, histories);
+
+        HistoryStore opened = HistoryStore.open(store);
+        assertEquals(3, opened.size());
+        assertEquals(new HashSet<>(histories.keySet()), new HashSet<>(opened.paths()));
+        for (Map.Entry<File, ArrayList<String[]>> entry : histories.entrySet()) {
+            assertHistoryEquals(entry.getValue(), opened.get(entry.getKey()));
+        }
+        assertNull(opened.get(new File(root, "cat.jpg")));
+        assertNull(HistoryStore.empty().get(cat));
+
+        Files.write(store.toPath(), "not a store".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> HistoryStore.open(store));
+    }
+
+    @Test
+    public void testTimeStamps() {
+        String timeStamp = "Sept, 05, 2017, 14:03:09";
+        assertEquals(timeStamp, HistoryStore.formatTime(HistoryStore.parseTime(timeStamp)));
+        assertEquals(61, HistoryStore.parseTime("Jan, 01, 1970, 00:01:01"));
+        assertEquals(Long.MIN_VALUE, HistoryStore.parseTime("Sep, 05, 2017, 14:03:09"));
+        assertEquals(Long.MIN_VALUE, HistoryStore.parseTime("Feb, 30, 2017, 14:03:09"));
+        assertEquals(Long.MIN_VALUE, HistoryStore.parseTime("Feb, 5, 2017, 14:03:09"));
+    }
+
+    static File image(File root, int i) {
+        return new File(new File(root, "folder" + i % 100), "IMG_" + i + " @b.jpg");
+    }
+
+    /**
+     * Return the contents of a config file in the text format with histories histories of
+     * Images under root.
+     */
+    static String textConfig(File root, int histories) {
+        StringBuilder config = new StringBuilder("a, b, family\n");
+        for (int i = 0; i < histories; i++) {
+            config.append(image(root, i)).append("|IMG_").append(i).append(".jpg;IMG_").append(i)
+                    .append(" @a.jpg;Jan, 0").append(i % 9 + 1).append(", 2017, 10:00:00|IMG_")
+                    .append(i).append(" @a.jpg;IMG_").append(i).append(" @b.jpg;Feb, 0")
+                    .append(i % 9 + 1).append(", 2017, 11:30:00\n");
+        }
+        return config.toString();
+    }
+
+    /**
+     * Converts the histories of a config file in the text format to a HistoryStore, which
+     * reads every one of them back the same.
+     */
+    @Test
+    public void testConvert() throws IOException {
+        String config = textConfig(root, HISTORIES);
+        File store = new File(root, "histories.dat");
+        assertEquals(HISTORIES, HistoryStore.convert(config, store));
+        assertTrue(store.length() < config.getBytes(StandardCharsets.UTF_8).length);
+
+        LinkedHashMap<File, ArrayList<String[]>> text = HistoryStore.readText(config);
+        HistoryStore binary = HistoryStore.open(store);
+        assertEquals(HISTORIES, text.size());
+        assertEquals(HISTORIES, binary.size());
+        for (Map.Entry<File, ArrayList<String[]>> entry : text.entrySet()) {
+            assertHistoryEquals(entry.getValue(), binary.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Opening a HistoryStore reads only its header, so a record cut short is only noticed
+     * once its history is read.
+     */
+    @Test
+    public void testLazyLoad() throws IOException {
+        File store = new File(root, "histories.dat");
+        HistoryStore.convert(textConfig(root, HISTORIES), store);
+        try (FileChannel channel = FileChannel.open(store.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+
+        HistoryStore opened = HistoryStore.open(store);
+        assertEquals(HISTORIES, opened.size());
+        assertEquals(2, opened.get(image(root, 0)).size());
+        File last = image(root, HISTORIES - 1);
+        assertTrue(opened.contains(last));
+        assertThrows(IllegalStateException.class, () -> opened.get(last));
+    }
+}
@@ -12,6 +12,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.UUID;
 
 public class ImageTest {
@@ -135,5 +137,31 @@ public class ImageTest {
         }
     }
 
-
-}
\ No newline at end of file
+    @Test
+    public void testTagNameCodec() throws InterruptedException {
+        String[] tags = TagNameCodec.parseTags("Tim @family  @ beach@x.jpg");
+        assertEquals(3, tags.length);
+        assertEquals("family", tags[0]);
+        assertEquals("beach", tags[1]);
+        assertEquals("x", tags[2]);
+        // Tags are shared between names
+        assertTrue(tags[0] == TagNameCodec.parseTags("Ann @family.png")[0]);
+        String[] shared = new String[1];
+        Thread lister = new Thread(() -> shared[0] = TagNameCodec.parseTags("x @ beach.jpg")[0]);
+        lister.start();
+        lister.join();
+        assertTrue(tags[1] == shared[0]);
+        assertEquals(0, TagNameCodec.parseTags("photo.jpg@x").length);
+        assertEquals(0, TagNameCodec.parseTags("no tags").length);
+        assertEquals(1, TagNameCodec.parseTags("no @extension").length);
+
+        assertEquals("Tim.jpg", TagNameCodec.untaggedName("Tim @family @beach.jpg"));
+        assertEquals("Tim @a @b.jpg", TagNameCodec.taggedName("Tim @family.jpg",
+                Arrays.asList("a", "b")));
+        assertEquals("cat @ab @x.jpg", TagNameCodec.changeTags("cat @a @ab.jpg",
+                Collections.singleton("a"), Collections.singleton("x")));
+        String unchanged = "cat @a.jpg";
+        assertTrue(unchanged == TagNameCodec.changeTags(unchanged,
+                Collections.singleton("b"), Collections.emptySet()));
+    }
+}
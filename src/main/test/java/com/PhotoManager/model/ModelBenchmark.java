@@ -0,0 +1,193 @@
+package com.PhotoManager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmarks of the model at the scale of a large library, which print what they measure.
+ * They are skipped unless the tests run with -Dbenchmark=true.
+ */
+public class ModelBenchmark {
+
+    /**
+     * Times each benchmark is run, the first ones warming up the JIT.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Upper bound for one pass over every Image of the large folder, which the quadratic
+     * lists Directory used before its index took minutes for.
+     */
+    private static final long MAX_PASS_MILLIS = 2000;
+
+    private File root;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("benchmark").toFile();
+    }
+
+    private static void assumeBenchmark() {
+        assumeTrue(Boolean.getBoolean("benchmark"), "Run with -Dbenchmark=true");
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Return the bytes of heap in use once the garbage collector has run.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Lists a folder of 10k files the way Directory did before listing with NIO and with
+     * DirectoryScanner.list, and reports the stats and the fastest time of each.
+     */
+    @Test
+    public void benchmarkListing() throws IOException {
+        assumeBenchmark();
+        int files = 10000;
+        File folder = new File(root, "listing");
+        assertTrue(folder.mkdir());
+        for (int i = 0; i < files; i++) {
+            String extension = i % 4 == 0 ? ".txt" : ".jpg";
+            assertTrue(new File(folder, "photo" + i + extension).createNewFile());
+        }
+
+        long legacyNanos = Long.MAX_VALUE;
+        long nioNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            DirectoryScannerTest.legacyList(folder);
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            DirectoryScanner.list(folder);
+            nioNanos = Math.min(nioNanos, System.nanoTime() - start);
+        }
+        DirectoryScannerTest.CountingFile.stats = 0;
+        int legacyFound = DirectoryScannerTest.legacyList(folder);
+        long legacyStats = DirectoryScannerTest.CountingFile.stats;
+        CountingFileSystemProvider provider = new CountingFileSystemProvider();
+        DirectoryScanner.Listing listing = DirectoryScanner.list(provider.getPath(folder));
+
+        System.out.printf("Listing %d files: legacy %d stats in %.1f ms, NIO %d stats in " +
+                        "%.1f ms%n", files, legacyStats, millis(legacyNanos), provider.getStats(),
+                millis(nioNanos));
+        assertEquals(legacyFound, listing.images.size() + listing.directories.size());
+        assertTrue(provider.getStats() < legacyStats);
+    }
+
+    /**
+     * Reconciles, looks up, removes and adds back every Image of a folder of 50k Images, and
+     * reports the fastest time of each pass.
+     */
+    @Test
+    public void benchmarkLargeFolder() throws IOException {
+        assumeBenchmark();
+        int files = 50000;
+        long start = System.nanoTime();
+        Directory folder = DirectoryTest.createLargeFolder(files).getRootDirectory()
+                .getDirectories().get(0);
+        long scanNanos = System.nanoTime() - start;
+        ArrayList<Image> images = folder.getImages();
+        assertEquals(files, images.size());
+
+        long reconcileNanos = Long.MAX_VALUE;
+        long lookupNanos = Long.MAX_VALUE;
+        long removeAddNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            folder.updateDirectoryChanges();
+            reconcileNanos = Math.min(reconcileNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Image image : images) {
+                assertSame(image, folder.getImage(image.getFilePath()));
+            }
+            lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Image image : images) {
+                folder.removeFile(image.getFilePath());
+            }
+            for (Image image : images) {
+                folder.addImage(image);
+            }
+            removeAddNanos = Math.min(removeAddNanos, System.nanoTime() - start);
+            assertEquals(files, folder.getImages().size());
+        }
+
+        System.out.printf("Folder of %d Images: scanned in %.1f ms, reconciled in %.1f ms, " +
+                        "looked up in %.1f ms, removed and added in %.1f ms%n", files,
+                millis(scanNanos), millis(reconcileNanos), millis(lookupNanos),
+                millis(removeAddNanos));
+        assertTrue(millis(reconcileNanos) < MAX_PASS_MILLIS);
+        assertTrue(millis(lookupNanos) < MAX_PASS_MILLIS);
+        assertTrue(millis(removeAddNanos) < MAX_PASS_MILLIS);
+    }
+
+    /**
+     * Loads the histories of 200k Images from a config file in the text format and from a
+     * HistoryStore, and reports the fastest time to load each and the heap each keeps.
+     */
+    @Test
+    public void benchmarkHistoryLoad() throws IOException {
+        assumeBenchmark();
+        int histories = 200000;
+        File text = new File(root, "config.txt");
+        Files.write(text.toPath(), HistoryStoreTest.textConfig(root, histories)
+                .getBytes(StandardCharsets.UTF_8));
+        File binary = new File(root, "histories.dat");
+        assertEquals(histories, HistoryStore.convert(new String(Files.readAllBytes(
+                text.toPath()), StandardCharsets.UTF_8), binary));
+
+        long textNanos = Long.MAX_VALUE;
+        long binaryNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            HistoryStore.readText(new String(Files.readAllBytes(text.toPath()),
+                    StandardCharsets.UTF_8));
+            textNanos = Math.min(textNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            HistoryStore.open(binary);
+            binaryNanos = Math.min(binaryNanos, System.nanoTime() - start);
+        }
+
+        long before = usedHeap();
+        LinkedHashMap<File, ArrayList<String[]>> textHistories = HistoryStore.readText(
+                new String(Files.readAllBytes(text.toPath()), StandardCharsets.UTF_8));
+        long textHeap = usedHeap() - before;
+        before = usedHeap();
+        HistoryStore store = HistoryStore.open(binary);
+        long binaryHeap = usedHeap() - before;
+        // Every history is still there to be read
+        File last = HistoryStoreTest.image(root, histories - 1);
+        assertEquals(textHistories.get(last).size(), store.get(last).size());
+
+        System.out.printf("%d histories: text %d bytes loaded in %.1f ms keeping %d KB of " +
+                        "heap, HistoryStore %d bytes opened in %.1f ms keeping %d KB%n",
+                histories, text.length(), millis(textNanos), textHeap / 1024, binary.length(),
+                millis(binaryNanos), binaryHeap / 1024);
+        assertTrue(binaryNanos < textNanos);
+        assertTrue(binaryHeap < textHeap);
+    }
+}
@@ -0,0 +1,76 @@
+package com.PhotoManager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MoveEngineTest {
+
+    private File root;
+    private byte[] content;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("move").toFile();
+        content = new byte[3 * 1024 * 1024 + 7];
+        new Random(42).nextBytes(content);
+    }
+
+    @Test
+    public void testMoveWithinFilesystem() throws IOException {
+        File source = new File(root, "a.jpg");
+        File target = new File(root, "b.jpg");
+        Files.write(source.toPath(), content);
+
+        AtomicLong copied = new AtomicLong();
+        assertFalse(new MoveEngine().move(source, target, copied::addAndGet));
+        assertEquals(0, copied.get());
+        assertFalse(source.exists());
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+
+        // Never replaces a file
+        Files.write(source.toPath(), content);
+        assertThrows(FileAlreadyExistsException.class, () ->
+                new MoveEngine().move(source, target, null));
+        assertTrue(source.exists());
+    }
+
+    @Test
+    public void testMoveAcrossFilesystems() throws IOException {
+        File shm = new File("/dev/shm");
+        if (!shm.isDirectory() || Files.getFileStore(shm.toPath())
+                .equals(Files.getFileStore(root.toPath()))) {
+            // No second filesystem to move to
+            return;
+        }
+        File other = Files.createTempDirectory(shm.toPath(), "move").toFile();
+        File source = new File(root, "a.jpg");
+        File target = new File(other, "a.jpg");
+        Files.write(source.toPath(), content);
+        long modified = source.lastModified();
+
+        AtomicLong copied = new AtomicLong();
+        assertTrue(new MoveEngine(true).move(source, target, copied::addAndGet));
+        assertEquals(content.length, copied.get());
+        assertFalse(source.exists());
+        assertFalse(new File(other, "a.jpg.part").exists());
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(modified, target.lastModified());
+
+        assertFalse(new MoveEngine().move(target, new File(other, "b.jpg"), null));
+        assertTrue(new MoveEngine().move(new File(other, "b.jpg"), source, null));
+        assertArrayEquals(content, Files.readAllBytes(source.toPath()));
+    }
+}
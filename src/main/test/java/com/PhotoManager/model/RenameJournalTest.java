@@ -0,0 +1,174 @@
+package com.PhotoManager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RenameJournalTest {
+
+    private File root;
+    private File journalFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("journal").toFile();
+        journalFile = new File(root, "journal.dat");
+        for (String name : new String[]{"a.jpg", "b.jpg"}) {
+            assertTrue(new File(root, name).createNewFile());
+        }
+    }
+
+    /**
+     * Return the entries renaming a.jpg and b.jpg to be tagged with x.
+     */
+    private List<RenameJournal.Entry> tagBoth() {
+        List<RenameJournal.Entry> entries = new ArrayList<>();
+        for (String name : new String[]{"a", "b"}) {
+            ArrayList<String[]> history = new ArrayList<>();
+            history.add(new String[]{name + ".jpg", name + " @x.jpg", "Jan, 01, 2018, 12:00:00"});
+            entries.add(new RenameJournal.Entry(new File(root, name + ".jpg"),
+                    new File(root, name + " @x.jpg"), history));
+        }
+        return entries;
+    }
+
+    @Test
+    public void testRecoverReplaysUncommittedBatch() throws IOException {
+        RenameJournal journal = new RenameJournal(journalFile);
+        List<RenameJournal.Entry> entries = tagBoth();
+        journal.begin(entries);
+        // Crash after the first rename
+        Files.move(entries.get(0).getSource().toPath(), entries.get(0).getTarget().toPath());
+        journal.close();
+
+        List<RenameJournal.Entry> made = new RenameJournal(journalFile).recover();
+        assertEquals(2, made.size());
+        assertTrue(new File(root, "a @x.jpg").exists());
+        assertTrue(new File(root, "b @x.jpg").exists());
+        assertFalse(new File(root, "b.jpg").exists());
+        assertEquals("b @x.jpg", made.get(1).getHistory().get(0)[1]);
+    }
+
+    /**
+     * Return the entries of a chain renaming a.jpg to c.jpg, then b.jpg to a.jpg.
+     */
+    private List<RenameJournal.Entry> chain() {
+        List<RenameJournal.Entry> entries = new ArrayList<>();
+        String[][] renames = {{"a.jpg", "c.jpg"}, {"b.jpg", "a.jpg"}};
+        for (String[] rename : renames) {
+            ArrayList<String[]> history = new ArrayList<>();
+            history.add(new String[]{rename[0], rename[1], "Jan, 01, 2018, 12:00:00"});
+            entries.add(new RenameJournal.Entry(new File(root, rename[0]),
+                    new File(root, rename[1]), history));
+        }
+        return entries;
+    }
+
+    private static void move(RenameJournal.Entry entry) throws IOException {
+        Files.move(entry.getSource().toPath(), entry.getTarget().toPath());
+    }
+
+    @Test
+    public void testRecoverChainedBatch() throws IOException {
+        // Committed after both renames, though a.jpg is there again
+        RenameJournal journal = new RenameJournal(journalFile);
+        List<RenameJournal.Entry> entries = chain();
+        long batchId = journal.begin(entries);
+        move(entries.get(0));
+        move(entries.get(1));
+        journal.commit(batchId, Collections.emptyList());
+        journal.close();
+        List<RenameJournal.Entry> made = new RenameJournal(journalFile).recover();
+        assertEquals(2, made.size());
+        assertEquals(new File(root, "c.jpg"), made.get(0).getTarget());
+
+        // Crash after both renames were made, before the commit
+        assertTrue(journalFile.delete());
+        journal = new RenameJournal(journalFile);
+        batchId = journal.begin(chain());
+        journal.made(batchId, 0);
+        journal.made(batchId, 1);
+        journal.close();
+        made = new RenameJournal(journalFile).recover();
+        assertEquals(2, made.size());
+        assertTrue(new File(root, "a.jpg").exists());
+        assertTrue(new File(root, "c.jpg").exists());
+        assertFalse(new File(root, "b.jpg").exists());
+    }
+
+    @Test
+    public void testRecoverChainedBatchCutShort() throws IOException {
+        RenameJournal journal = new RenameJournal(journalFile);
+        List<RenameJournal.Entry> entries = chain();
+        journal.begin(entries);
+        // Crash after the first rename, before it was journaled as made
+        move(entries.get(0));
+        journal.close();
+
+        List<RenameJournal.Entry> made = new RenameJournal(journalFile).recover();
+        assertEquals(2, made.size());
+        assertTrue(new File(root, "a.jpg").exists());
+        assertTrue(new File(root, "c.jpg").exists());
+        assertFalse(new File(root, "b.jpg").exists());
+    }
+
+    @Test
+    public void testRecoverKeepsFailedRenames() throws IOException {
+        RenameJournal journal = new RenameJournal(journalFile);
+        List<RenameJournal.Entry> entries = tagBoth();
+        long batchId = journal.begin(entries);
+        Files.move(entries.get(0).getSource().toPath(), entries.get(0).getTarget().toPath());
+        journal.commit(batchId, Collections.singletonList(1));
+        journal.close();
+
+        List<RenameJournal.Entry> made = new RenameJournal(journalFile).recover();
+        assertEquals(1, made.size());
+        assertEquals(new File(root, "a @x.jpg"), made.get(0).getTarget());
+        assertTrue(new File(root, "b.jpg").exists());
+    }
+
+    @Test
+    public void testRecoverIgnoresTornRecord() throws IOException {
+        RenameJournal journal = new RenameJournal(journalFile);
+        journal.commit(journal.begin(tagBoth()), Arrays.asList(0, 1));
+        journal.close();
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(new byte[]{0, 0, 1, 0, 1, 2, 3});
+        }
+
+        journal = new RenameJournal(journalFile);
+        assertTrue(journal.recover().isEmpty());
+        // Records appended after the repaired tail are read by the next recovery
+        journal.begin(tagBoth());
+        journal.close();
+        assertEquals(2, new RenameJournal(journalFile).recover().size());
+        assertTrue(new File(root, "a @x.jpg").exists());
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        RenameJournal journal = new RenameJournal(journalFile);
+        long batchId = journal.begin(tagBoth());
+        // Not committed yet, so not in the config file
+        journal.checkpoint(journal.getLastCommitted());
+        assertTrue(journalFile.length() > 0);
+
+        journal.commit(batchId, Arrays.asList(0, 1));
+        journal.checkpoint(journal.getLastCommitted());
+        assertEquals(0, journalFile.length());
+        journal.close();
+        assertTrue(new RenameJournal(journalFile).recover().isEmpty());
+    }
+}